@@ -1,8 +1,10 @@
 plugins {
     java
     id("org.springframework.boot") version "3.5.6"
+    id("org.springframework.boot.aot") version "3.5.6"
     id("io.spring.dependency-management") version "1.1.7"
     id("org.asciidoctor.jvm.convert") version "3.3.2"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.shah_s"
@@ -30,6 +32,7 @@ extra["springCloudVersion"] = "2025.0.0"
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("org.springframework.boot:spring-boot-starter-aop")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.springframework.boot:spring-boot-starter-data-redis")
     implementation("org.springframework.boot:spring-boot-starter-security")
@@ -38,6 +41,8 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-webflux")
     implementation("org.springframework.cloud:spring-cloud-starter-netflix-eureka-client")
     implementation("org.springframework.cloud:spring-cloud-starter-openfeign")
+    implementation("org.flywaydb:flyway-core")
+    implementation("org.flywaydb:flyway-database-postgresql")
     implementation("com.fasterxml.jackson.core:jackson-core")
     implementation("com.fasterxml.jackson.core:jackson-annotations")
     implementation("com.fasterxml.jackson.core:jackson-databind")
@@ -73,6 +78,125 @@ tasks.withType<Test> {
 
 tasks.test {
     outputs.dir(project.extra["snippetsDir"]!!)
+    useJUnitPlatform {
+        excludeTags("benchmark", "load", "startup")
+    }
+}
+
+// Database-backed benchmarks (Testcontainers), kept out of the regular test run
+tasks.register<Test>("benchmarkTest") {
+    description = "Runs tests tagged 'benchmark'."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    testLogging {
+        showStandardStreams = true
+    }
+}
+
+// End-to-end load test against Postgres/Redis containers and local product/order stubs.
+// Settings are passed as project properties, e.g. ./gradlew loadTest -Pload.users=32 -Pload.product-latency-ms=40
+tasks.register<Test>("loadTest") {
+    description = "Runs tests tagged 'load'."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("load")
+    }
+    systemProperties(project.properties.filterKeys { it.startsWith("load.") })
+    outputs.upToDateWhen { false }
+    testLogging {
+        showStandardStreams = true
+    }
+}
+
+// Class data sharing: the boot jar (with AOT-generated initialization, see processAot) is extracted to
+// build/cds and a training run that stops once the context is refreshed records the loaded classes in
+// build/cds/application.jsa. Start the service from there with
+// java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar bakery_cart_service-0.0.1-SNAPSHOT.jar
+val cdsDir = layout.buildDirectory.dir("cds")
+val cdsJava = javaToolchains.launcherFor {
+    languageVersion = JavaLanguageVersion.of(21)
+}.map { it.executablePath.asFile.absolutePath }
+
+tasks.register<Exec>("extractBootJar") {
+    description = "Extracts the boot jar into build/cds for class data sharing."
+    group = "build"
+    val bootJar = tasks.bootJar.flatMap { it.archiveFile }
+    inputs.file(bootJar)
+    outputs.dir(cdsDir)
+    doFirst {
+        delete(cdsDir)
+        executable(cdsJava.get())
+    }
+    args("-Djarmode=tools", "-jar", bootJar.get().asFile.absolutePath,
+        "extract", "--destination", cdsDir.get().asFile.absolutePath)
+}
+
+// The training run needs no database, Redis or Eureka: nothing is queried before the context is refreshed.
+// It runs the AOT-processed initialization, where @ConditionalOnProperty was resolved by processAot, so
+// spring.flyway.enabled or eureka.client.enabled cannot switch anything off here; only settings read at
+// runtime are used: migrations are skipped (FlywayConfig), the datasource points at an unreachable host
+// and never connects, and the Eureka client neither registers nor fetches.
+tasks.register<Exec>("cdsArchive") {
+    description = "Records a CDS archive of the extracted boot jar from a training run."
+    group = "build"
+    dependsOn("extractBootJar")
+    workingDir(cdsDir)
+    outputs.file(cdsDir.map { it.file("application.jsa") })
+    doFirst {
+        executable(cdsJava.get())
+    }
+    args("-XX:ArchiveClassesAtExit=application.jsa",
+        "-Dspring.aot.enabled=true",
+        "-Dspring.context.exit=onRefresh",
+        "-jar", tasks.bootJar.get().archiveFileName.get(),
+        "--cart.flyway.migrate-on-startup=false",
+        "--spring.datasource.url=jdbc:postgresql://cds-training.invalid:5432/none",
+        "--spring.datasource.hikari.initialization-fail-timeout=-1",
+        "--spring.jpa.hibernate.ddl-auto=none",
+        "--spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false",
+        "--eureka.client.register-with-eureka=false",
+        "--eureka.client.fetch-registry=false")
+}
+
+// Startup time and time to first request of the extracted jar: plain, AOT, and AOT with the CDS archive
+tasks.register<Test>("startupTest") {
+    description = "Runs tests tagged 'startup'."
+    group = "verification"
+    dependsOn("cdsArchive")
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("startup")
+    }
+    systemProperty("startup.dir", cdsDir.get().asFile.absolutePath)
+    systemProperty("startup.jar", tasks.bootJar.get().archiveFileName.get())
+    outputs.upToDateWhen { false }
+    testLogging {
+        showStandardStreams = true
+    }
+}
+
+// JMH microbenchmarks (src/jmh): ./gradlew jmh
+// Results are written as JSON per commit to jmh-results/<commit>.json, for comparing runs between commits
+val jmhCommit = providers.exec {
+    commandLine("git", "rev-parse", "--short", "HEAD")
+    isIgnoreExitValue = true
+}.standardOutput.asText.map { it.trim().ifEmpty { "local" } }
+
+jmh {
+    jmhVersion = "1.37"
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    profilers = listOf("gc") // Allocation rate and bytes per operation
+    resultFormat = "JSON"
+    resultsFile = layout.projectDirectory.file(jmhCommit.map { "jmh-results/$it.json" })
 }
 
 tasks.asciidoctor {
@@ -0,0 +1,68 @@
+package com.shah_s.bakery_cart_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_cart_service.config.CacheConfig;
+import com.shah_s.bakery_cart_service.dto.CartResponse;
+import com.shah_s.bakery_cart_service.service.CartService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+// Both value serializers of CacheConfig on a CartResponse, and the LinkedHashMap -> CartResponse
+// fallback (CartService.convertIfMap) used when the generic serializer hands back a map
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheSerializationBenchmark {
+
+    @Param({"1", "10", "50", "100"})
+    private int itemCount;
+
+    private ObjectMapper objectMapper;
+    private GenericJackson2JsonRedisSerializer genericSerializer;
+    private Jackson2JsonRedisSerializer<CartResponse> cartSerializer;
+    private CartResponse response;
+    private byte[] genericBytes;
+    private byte[] cartBytes;
+    private Object cachedMap;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new CacheConfig().objectMapper();
+        genericSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+        cartSerializer = new Jackson2JsonRedisSerializer<>(objectMapper, CartResponse.class);
+
+        response = CartResponse.from(CartFixtures.cart(itemCount));
+        genericBytes = genericSerializer.serialize(response);
+        cartBytes = cartSerializer.serialize(response);
+        // The generic serializer carries no type information: cart entries come back as a LinkedHashMap
+        cachedMap = genericSerializer.deserialize(cartBytes);
+    }
+
+    @Benchmark
+    public byte[] genericSerialize() {
+        return genericSerializer.serialize(response);
+    }
+
+    @Benchmark
+    public Object genericDeserialize() {
+        return genericSerializer.deserialize(genericBytes);
+    }
+
+    @Benchmark
+    public byte[] cartResponseSerialize() {
+        return cartSerializer.serialize(response);
+    }
+
+    @Benchmark
+    public CartResponse cartResponseDeserialize() {
+        return cartSerializer.deserialize(cartBytes);
+    }
+
+    @Benchmark
+    public CartResponse convertIfMap() {
+        return CartService.convertIfMap(cachedMap, objectMapper);
+    }
+}
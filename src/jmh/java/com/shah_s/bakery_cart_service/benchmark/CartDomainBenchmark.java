@@ -0,0 +1,46 @@
+package com.shah_s.bakery_cart_service.benchmark;
+
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Cart entity methods that run on every cart write and read
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CartDomainBenchmark {
+
+    @Param({"1", "10", "50", "100"})
+    private int itemCount;
+
+    private Cart cart;
+    private UUID lastProductId;
+
+    @Setup
+    public void setUp() {
+        cart = CartFixtures.cart(itemCount);
+        List<CartItem> activeItems = cart.getActiveItems();
+        lastProductId = activeItems.get(activeItems.size() - 1).getProductId();
+    }
+
+    @Benchmark
+    public Cart updateTotals() {
+        cart.updateTotals();
+        return cart;
+    }
+
+    // Worst case: the product is the last active item
+    @Benchmark
+    public CartItem findItemByProductId() {
+        return cart.findItemByProductId(lastProductId);
+    }
+
+    @Benchmark
+    public List<CartItem> getActiveItems() {
+        return cart.getActiveItems();
+    }
+}
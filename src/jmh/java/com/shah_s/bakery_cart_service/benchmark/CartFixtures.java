@@ -0,0 +1,54 @@
+package com.shah_s.bakery_cart_service.benchmark;
+
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Detached carts shaped like production ones: mostly active items, some saved for later
+final class CartFixtures {
+
+    private CartFixtures() {}
+
+    static Cart cart(int itemCount) {
+        List<UUID> productIds = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            productIds.add(UUID.randomUUID());
+        }
+        return cart(productIds);
+    }
+
+    // One item per product, in order
+    static Cart cart(List<UUID> productIds) {
+        int itemCount = productIds.size();
+        LocalDateTime now = LocalDateTime.now();
+        Cart cart = new Cart(UUID.randomUUID(), null);
+        cart.setId(UUID.randomUUID());
+        cart.setCreatedAt(now);
+        cart.setUpdatedAt(now);
+        cart.setVersion(1L);
+        cart.setMetadata("{\"channel\":\"web\",\"campaign\":\"spring-bake-off\"}");
+
+        List<CartItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            CartItem item = new CartItem(cart, productIds.get(i), "Sourdough loaf " + i, 1 + i % 4,
+                    new BigDecimal("4.50").add(BigDecimal.valueOf(i, 2)));
+            item.setId(UUID.randomUUID());
+            item.setProductSku("SKU-" + i);
+            item.setProductCategory("BREAD");
+            item.setAddedAt(now.minusMinutes(itemCount - i));
+            item.setUpdatedAt(now);
+            if (i % 10 == 9) {
+                item.saveForLater();
+            }
+            items.add(item);
+        }
+        cart.setItems(items);
+        cart.updateTotals();
+        return cart;
+    }
+}
@@ -0,0 +1,94 @@
+package com.shah_s.bakery_cart_service.benchmark;
+
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Product lookups on large carts, served by the item index of Cart:
+// - lookups of a present and a missing product, and the first lookup after an item change (rebuild)
+// - merging a cart of the same size into it, half of its products being duplicates: one lookup per
+//   source item, then quantities raised in place and the rest added
+//   (the in-memory counterpart of CartItemRepository.upsertItemsFromCart)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CartItemLookupBenchmark {
+
+    private static final int MAX_QUANTITY_PER_ITEM = 50;
+
+    @Param({"10", "100", "250"})
+    private int itemCount;
+
+    private Cart cart;
+    private UUID lastProductId;
+    private UUID missingProductId;
+
+    @Setup
+    public void setUp() {
+        cart = CartFixtures.cart(itemCount);
+        List<CartItem> activeItems = cart.getActiveItems();
+        lastProductId = activeItems.get(activeItems.size() - 1).getProductId();
+        missingProductId = UUID.randomUUID();
+    }
+
+    @Benchmark
+    public CartItem findItemByProductId() {
+        return cart.findItemByProductId(lastProductId);
+    }
+
+    @Benchmark
+    public boolean hasItemMissing() {
+        return cart.hasItem(missingProductId);
+    }
+
+    // First lookup after a load or an item change
+    @Benchmark
+    public CartItem findItemAfterChange() {
+        cart.itemsChanged();
+        return cart.findItemByProductId(lastProductId);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Cart mergeCarts(MergeState state) {
+        Cart target = state.target;
+        List<CartItem> added = new ArrayList<>();
+        for (CartItem item : state.source.getActiveItems()) {
+            CartItem existing = target.findItemByProductId(item.getProductId());
+            if (existing != null) {
+                existing.setQuantity(Math.min(existing.getQuantity() + item.getQuantity(), MAX_QUANTITY_PER_ITEM));
+            } else {
+                added.add(new CartItem(target, item.getProductId(), item.getProductName(), item.getQuantity(),
+                        item.getUnitPrice()));
+            }
+        }
+        added.forEach(target::addItem);
+        return target;
+    }
+
+    // Fresh carts for every merge, since a merge changes its target
+    @State(Scope.Thread)
+    public static class MergeState {
+
+        private Cart target;
+        private Cart source;
+
+        @Setup(Level.Invocation)
+        public void setUp(CartItemLookupBenchmark benchmark) {
+            List<UUID> targetProducts = new ArrayList<>();
+            List<UUID> sourceProducts = new ArrayList<>();
+            for (int i = 0; i < benchmark.itemCount; i++) {
+                UUID productId = UUID.randomUUID();
+                targetProducts.add(productId);
+                sourceProducts.add(i % 2 == 0 ? productId : UUID.randomUUID());
+            }
+            target = CartFixtures.cart(targetProducts);
+            source = CartFixtures.cart(sourceProducts);
+        }
+    }
+}
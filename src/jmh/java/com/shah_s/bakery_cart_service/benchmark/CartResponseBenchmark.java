@@ -0,0 +1,38 @@
+package com.shah_s.bakery_cart_service.benchmark;
+
+import com.shah_s.bakery_cart_service.dto.CartItemResponse;
+import com.shah_s.bakery_cart_service.dto.CartResponse;
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Entity -> DTO conversion behind every cart response and snapshot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CartResponseBenchmark {
+
+    @Param({"1", "10", "50", "100"})
+    private int itemCount;
+
+    private Cart cart;
+    private CartItem item;
+
+    @Setup
+    public void setUp() {
+        cart = CartFixtures.cart(itemCount);
+        item = cart.getItems().get(0);
+    }
+
+    @Benchmark
+    public CartResponse cartResponseFrom() {
+        return CartResponse.from(cart);
+    }
+
+    @Benchmark
+    public CartItemResponse cartItemResponseFrom() {
+        return CartItemResponse.from(item);
+    }
+}
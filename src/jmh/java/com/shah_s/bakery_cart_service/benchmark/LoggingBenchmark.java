@@ -0,0 +1,137 @@
+package com.shah_s.bakery_cart_service.benchmark;
+
+import com.shah_s.bakery_cart_service.config.RequestDebugTurboFilter;
+import com.shah_s.bakery_cart_service.config.RequestLogContextFilter;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Request-thread cost of the log lines written for one add-item request, with logback-spring.xml
+// initialized as in each profile:
+// - default: synchronous pattern console appender, the DEBUG levels of application.yml
+// - prod: async JSON (ECS) appender, the levels of application-prod.yml
+// addItemDebugRequest is the same request flagged for DEBUG (X-Debug-Log / sampling).
+// stdout is discarded while measuring, so the numbers exclude terminal I/O.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoggingBenchmark {
+
+    private static final Map<String, LogLevel> DEFAULT_LEVELS = Map.of(
+            "com.shah_s.bakery_cart_service", LogLevel.DEBUG,
+            "org.springframework.web", LogLevel.DEBUG,
+            "org.springframework.cache", LogLevel.DEBUG,
+            "org.springframework.data.redis", LogLevel.DEBUG,
+            "feign", LogLevel.DEBUG);
+
+    private static final Map<String, LogLevel> PROD_LEVELS = Map.of(
+            "com.shah_s.bakery_cart_service", LogLevel.INFO,
+            "com.shah_s.bakery_cart_service.controller", LogLevel.WARN,
+            "org.springframework.web", LogLevel.WARN,
+            "org.springframework.cache", LogLevel.WARN,
+            "org.springframework.data.redis", LogLevel.WARN,
+            "feign", LogLevel.WARN);
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    private LoggingSystem loggingSystem;
+    private PrintStream stdout;
+
+    private Logger dispatcherServlet;
+    private Logger bodyProcessor;
+    private Logger controller;
+    private Logger cartService;
+    private Logger cartItemService;
+    private Logger feignClient;
+    private Logger cacheInterceptor;
+    private Logger redisConnections;
+
+    private UUID cartId;
+    private UUID productId;
+
+    @Setup
+    public void setUp() {
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        StandardEnvironment environment = new StandardEnvironment();
+        if ("prod".equals(profile)) {
+            environment.setActiveProfiles("prod");
+        }
+        loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.beforeInitialize();
+        loggingSystem.initialize(new LoggingInitializationContext(environment), "classpath:logback-spring.xml", null);
+        ("prod".equals(profile) ? PROD_LEVELS : DEFAULT_LEVELS).forEach(loggingSystem::setLogLevel);
+
+        dispatcherServlet = LoggerFactory.getLogger("org.springframework.web.servlet.DispatcherServlet");
+        bodyProcessor = LoggerFactory.getLogger("org.springframework.web.servlet.mvc.method.annotation.RequestResponseBodyMethodProcessor");
+        controller = LoggerFactory.getLogger("com.shah_s.bakery_cart_service.controller.CartController");
+        cartService = LoggerFactory.getLogger("com.shah_s.bakery_cart_service.service.CartService");
+        cartItemService = LoggerFactory.getLogger("com.shah_s.bakery_cart_service.service.CartItemService");
+        feignClient = LoggerFactory.getLogger("feign.Logger");
+        cacheInterceptor = LoggerFactory.getLogger("org.springframework.cache.interceptor.CacheInterceptor");
+        redisConnections = LoggerFactory.getLogger("org.springframework.data.redis.core.RedisConnectionUtils");
+
+        cartId = UUID.randomUUID();
+        productId = UUID.randomUUID();
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggingSystem.cleanUp();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void addItemRequest() {
+        MDC.put(RequestLogContextFilter.REQUEST_ID_MDC_KEY, "5f1d2c3b4a596877");
+        try {
+            logAddItemRequest();
+        } finally {
+            MDC.remove(RequestLogContextFilter.REQUEST_ID_MDC_KEY);
+        }
+    }
+
+    @Benchmark
+    public void addItemDebugRequest() {
+        MDC.put(RequestLogContextFilter.REQUEST_ID_MDC_KEY, "5f1d2c3b4a596877");
+        MDC.put(RequestDebugTurboFilter.MDC_KEY, "true");
+        try {
+            logAddItemRequest();
+        } finally {
+            MDC.remove(RequestLogContextFilter.REQUEST_ID_MDC_KEY);
+            MDC.remove(RequestDebugTurboFilter.MDC_KEY);
+        }
+    }
+
+    // Private helper methods
+
+    // The lines of POST /api/carts/{cartId}/items, in order, with their loggers and levels
+    private void logAddItemRequest() {
+        dispatcherServlet.debug("POST \"/api/carts/{}/items\", parameters={}", cartId, "{}");
+        bodyProcessor.debug("Read \"application/json;charset=UTF-8\" to [{}]", "AddItemRequest");
+        controller.info("Add item to cart request received: {} product: {}", cartId, productId);
+        cartService.info("Adding item to cart: {} product: {} quantity: {}", cartId, productId, 2);
+        redisConnections.debug("Fetching Redis Connection from RedisConnectionFactory");
+        redisConnections.debug("Closing Redis Connection");
+        feignClient.debug("[ProductServiceClient#getProductById] ---> GET http://product-service/api/products/{} HTTP/1.1", productId);
+        feignClient.debug("[ProductServiceClient#getProductById] <--- HTTP/1.1 200 ({}ms)", 12);
+        cartItemService.debug("Fetching items for cart: {}", cartId);
+        cacheInterceptor.debug("Invalidating cache key [{}] for operation Builder[public CartResponse addItemToCart]", cartId);
+        controller.info("Item added to cart successfully: {}", cartId);
+        bodyProcessor.debug("Writing [{}]", "CartResponse");
+        dispatcherServlet.debug("Completed 201 CREATED");
+    }
+}
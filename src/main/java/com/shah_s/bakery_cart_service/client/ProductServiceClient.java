@@ -1,5 +1,6 @@
 package com.shah_s.bakery_cart_service.client;
 
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
@@ -10,6 +11,8 @@ import java.util.UUID;
 @FeignClient(name = "product-service", path = "/api/products")
 public interface ProductServiceClient {
 
+    // Cached in product-info (10 minutes); prices are re-validated at checkout
+    @Cacheable(value = "product-info", key = "#productId")
     @GetMapping("/{productId}")
     Map<String, Object> getProductById(@PathVariable UUID productId);
 
@@ -9,6 +9,8 @@ import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import com.shah_s.bakery_cart_service.dto.CartResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -18,9 +20,11 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
@@ -78,16 +82,21 @@ public class CacheConfig {
         return template;
     }
 
+    // Redis caches, each with its own measured value serializer, wrapped for metrics (InstrumentedCache)
+    // and for stampede protection of @Cacheable(sync = true) lookups (CoalescingCache)
     @Bean
     @Primary
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, ObjectMapper objectMapper) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, ObjectMapper objectMapper,
+                                     StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry,
+                                     @Value("${cart.cache.lock-ttl-ms:5000}") long lockTtlMillis,
+                                     @Value("${cart.cache.lock-poll-ms:50}") long lockPollMillis,
+                                     @Value("${cart.cache.early-refresh-beta:1.0}") double earlyRefreshBeta) {
         GenericJackson2JsonRedisSerializer jacksonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(30))
                 .serializeKeysWith(RedisSerializationContext.SerializationPair
                         .fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair
-                        .fromSerializer(jacksonSerializer))
+                .serializeValuesWith(measured(jacksonSerializer, "default", meterRegistry))
                 .disableCachingNullValues();
 
         // Specific cache configurations
@@ -98,25 +107,41 @@ public class CacheConfig {
         RedisCacheConfiguration cartCacheConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(30))
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(cartSerializer))
+                .serializeValuesWith(measured(cartSerializer, "carts", meterRegistry))
                 .disableCachingNullValues();
         cacheConfigurations.put("carts", cartCacheConfig);
 
         // Cart items cache - 15 minutes TTL
-        cacheConfigurations.put("cart-items", defaultConfig.entryTtl(Duration.ofMinutes(15)));
+        cacheConfigurations.put("cart-items", defaultConfig.entryTtl(Duration.ofMinutes(15))
+                .serializeValuesWith(measured(jacksonSerializer, "cart-items", meterRegistry)));
 
         // Product info cache - 10 minutes TTL
-        cacheConfigurations.put("product-info", defaultConfig.entryTtl(Duration.ofMinutes(10)));
+        cacheConfigurations.put("product-info", defaultConfig.entryTtl(Duration.ofMinutes(10))
+                .serializeValuesWith(measured(jacksonSerializer, "product-info", meterRegistry)));
 
         // Cart statistics cache - 60 minutes TTL
-        cacheConfigurations.put("cart-stats", defaultConfig.entryTtl(Duration.ofHours(1)));
+        cacheConfigurations.put("cart-stats", defaultConfig.entryTtl(Duration.ofHours(1))
+                .serializeValuesWith(measured(jacksonSerializer, "cart-stats", meterRegistry)));
 
         // Session cache - 24 hours TTL
-        cacheConfigurations.put("sessions", defaultConfig.entryTtl(Duration.ofHours(24)));
+        cacheConfigurations.put("sessions", defaultConfig.entryTtl(Duration.ofHours(24))
+                .serializeValuesWith(measured(jacksonSerializer, "sessions", meterRegistry)));
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
+        redisCacheManager.afterPropertiesSet(); // Not a bean itself: create the configured caches now
+
+        Duration lockTtl = Duration.ofMillis(lockTtlMillis);
+        return new DecoratingCacheManager(redisCacheManager, cache -> new InstrumentedCache(
+                new CoalescingCache(cache, stringRedisTemplate, lockTtl, lockPollMillis, earlyRefreshBeta),
+                meterRegistry));
+    }
+
+    private <T> RedisSerializationContext.SerializationPair<T> measured(RedisSerializer<T> serializer, String cacheName,
+                                                                        MeterRegistry meterRegistry) {
+        return RedisSerializationContext.SerializationPair.fromSerializer(
+                new MeasuredRedisSerializer<>(serializer, cacheName, meterRegistry));
     }
 }
@@ -0,0 +1,116 @@
+package com.shah_s.bakery_cart_service.config;
+
+import com.shah_s.bakery_cart_service.config.DependencyTimings.Dependency;
+import io.micrometer.core.instrument.Tags;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Timers around the service entry points and every dependency call, tagged with the class, the method
+// and the outcome (success | error, plus the exception type):
+// - cart.service.calls: public CartService methods
+// - cart.dependency.calls{dependency=db|redis|remote}: repository queries, Redis stores, Feign clients
+// Dependency calls are also charged to the current request (DependencyTimings).
+@Aspect
+@Component
+public class CallTimingAspect {
+
+    private static final String SERVICE_CALLS = "cart.service.calls";
+    private static final String DEPENDENCY_CALLS = "cart.dependency.calls";
+
+    private final LatencyTimers latencyTimers;
+
+    public CallTimingAspect(LatencyTimers latencyTimers) {
+        this.latencyTimers = latencyTimers;
+    }
+
+    @Around("execution(public * com.shah_s.bakery_cart_service.service.CartService.*(..))")
+    public Object cartService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, null, "CartService");
+    }
+
+    // Database
+    @Around("execution(* com.shah_s.bakery_cart_service.repository.CartRepository+.*(..))")
+    public Object cartRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.DB, "CartRepository");
+    }
+
+    @Around("execution(* com.shah_s.bakery_cart_service.repository.CartItemRepository+.*(..))")
+    public Object cartItemRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.DB, "CartItemRepository");
+    }
+
+    @Around("execution(public * com.shah_s.bakery_cart_service.repository.CartBulkWriter.*(..))")
+    public Object cartBulkWriter(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.DB, "CartBulkWriter");
+    }
+
+    @Around("execution(public * com.shah_s.bakery_cart_service.repository.CartPartitionRepository.*(..))")
+    public Object cartPartitionRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.DB, "CartPartitionRepository");
+    }
+
+    // Redis (cache lookups are charged by InstrumentedCache)
+    @Around("execution(public * com.shah_s.bakery_cart_service.repository.GuestCartStore.*(..))")
+    public Object guestCartStore(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.REDIS, "GuestCartStore");
+    }
+
+    @Around("execution(public * com.shah_s.bakery_cart_service.repository.CartSnapshotStore.*(..))")
+    public Object cartSnapshotStore(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.REDIS, "CartSnapshotStore");
+    }
+
+    @Around("execution(public * com.shah_s.bakery_cart_service.repository.VirtualCartRegistry.*(..))")
+    public Object virtualCartRegistry(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.REDIS, "VirtualCartRegistry");
+    }
+
+    @Around("execution(public * com.shah_s.bakery_cart_service.service.CartEventService.publish(..))")
+    public Object cartEventPublish(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.REDIS, "CartEventService");
+    }
+
+    // Remote services
+    @Around("execution(* com.shah_s.bakery_cart_service.client.ProductServiceClient.*(..))")
+    public Object productServiceClient(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.REMOTE, "ProductServiceClient");
+    }
+
+    @Around("execution(* com.shah_s.bakery_cart_service.client.OrderServiceClient.*(..))")
+    public Object orderServiceClient(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Dependency.REMOTE, "OrderServiceClient");
+    }
+
+    // Private helper methods
+    private Object time(ProceedingJoinPoint joinPoint, Dependency dependency, String target) throws Throwable {
+        DependencyTimings.Frame frame = dependency != null ? DependencyTimings.enter(dependency) : null;
+        long start = System.nanoTime();
+        String outcome = "success";
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = "error";
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            DependencyTimings.exit(frame);
+
+            Tags tags = Tags.of("class", target, "method", joinPoint.getSignature().getName(),
+                    "outcome", outcome, "exception", exception);
+            if (dependency == null) {
+                latencyTimers.timer(SERVICE_CALLS, "CartService method calls", tags)
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+            } else {
+                latencyTimers.timer(DEPENDENCY_CALLS, "Database, Redis and remote service calls",
+                                tags.and("dependency", dependency.name().toLowerCase()))
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.shah_s.bakery_cart_service.config;
+
+import com.shah_s.bakery_cart_service.service.CartEventService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class CartEventConfig {
+
+    // One pattern subscription per node for all cart event channels
+    @Bean
+    public RedisMessageListenerContainer cartEventListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                    CartEventService cartEventService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        // The listener only enqueues, so it runs on the subscription thread and keeps message order
+        container.setTaskExecutor(new SyncTaskExecutor());
+        container.addMessageListener(cartEventService, new PatternTopic(CartEventService.CHANNEL_PREFIX + "*"));
+        return container;
+    }
+}
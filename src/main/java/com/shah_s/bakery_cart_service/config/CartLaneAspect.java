@@ -0,0 +1,87 @@
+package com.shah_s.bakery_cart_service.config;
+
+import com.shah_s.bakery_cart_service.dto.MergeCartsRequest;
+import com.shah_s.bakery_cart_service.repository.CartItemRepository;
+import com.shah_s.bakery_cart_service.service.CartMutation;
+import com.shah_s.bakery_cart_service.service.CartMutationLanes;
+import com.shah_s.bakery_cart_service.service.CartService;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+// Runs the cart mutations on the lane of their cart (CartMutationLanes): the methods marked with
+// @CartMutation, and merges (on the lanes of both carts). Ordered first, so the transaction and the
+// cache eviction happen on the lane too. A pending If-Match of the request (CartPreconditions) is
+// checked on the lane, in the mutation's transaction.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CartLaneAspect {
+
+    private final CartMutationLanes cartMutationLanes;
+    private final CartItemRepository cartItemRepository;
+    private final CartService cartService;
+
+    // Lazy: CartService is itself advised by this aspect
+    public CartLaneAspect(CartMutationLanes cartMutationLanes, CartItemRepository cartItemRepository,
+                          @Lazy CartService cartService) {
+        this.cartMutationLanes = cartMutationLanes;
+        this.cartItemRepository = cartItemRepository;
+        this.cartService = cartService;
+    }
+
+    @Around("@annotation(cartMutation)")
+    public Object cartMutation(ProceedingJoinPoint joinPoint, CartMutation cartMutation) throws Throwable {
+        UUID cartId = cartIdOf(joinPoint, cartMutation);
+        if (cartId == null) {
+            // Unknown item: nothing to serialize, the method reports it
+            return joinPoint.proceed();
+        }
+
+        // Taken on the request thread, before the mutation moves to the lane
+        String ifMatch = CartPreconditions.take(cartId);
+        if (ifMatch == null) {
+            return cartMutationLanes.run(cartId, joinPoint::proceed);
+        }
+        return cartMutationLanes.run(cartId, () -> cartService.runIfMatch(cartId, ifMatch, joinPoint::proceed));
+    }
+
+    @Around("execution(public * com.shah_s.bakery_cart_service.service.CartService.mergeCarts(..)) && args(request)")
+    public Object mergeCarts(ProceedingJoinPoint joinPoint, MergeCartsRequest request) throws Throwable {
+        if (request.getSourceCartId() == null || request.getTargetCartId() == null) {
+            return joinPoint.proceed();
+        }
+        return cartMutationLanes.run(List.of(request.getSourceCartId(), request.getTargetCartId()), joinPoint::proceed);
+    }
+
+    // Private helper methods
+    private UUID cartIdOf(ProceedingJoinPoint joinPoint, CartMutation cartMutation) {
+        boolean byItem = !cartMutation.itemIdParam().isEmpty();
+        String param = byItem ? cartMutation.itemIdParam() : cartMutation.cartIdParam();
+        UUID id = uuidArgument(joinPoint, param);
+        if (id == null || !byItem) {
+            return id;
+        }
+        return cartItemRepository.findCartIdById(id).orElse(null);
+    }
+
+    private UUID uuidArgument(ProceedingJoinPoint joinPoint, String param) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        String[] names = signature.getParameterNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(param) && signature.getParameterTypes()[i] == UUID.class) {
+                return (UUID) joinPoint.getArgs()[i];
+            }
+        }
+        throw new IllegalStateException("@CartMutation " + signature.toShortString()
+                + " has no UUID parameter named " + param);
+    }
+}
@@ -0,0 +1,55 @@
+package com.shah_s.bakery_cart_service.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.UUID;
+
+// If-Match on cart writes (/api/carts/{cartId}/**): the header is handed to the cart mutation
+// (CartPreconditions), which compares it with the cart's version inside its transaction and fails
+// with 412 Precondition Failed if the cart changed. Without the header, writes behave as before.
+@Component
+public class CartPreconditionInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartPreconditionInterceptor.class);
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null || HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String cartId = pathVariables != null ? pathVariables.get("cartId") : null;
+        if (cartId == null) {
+            return true;
+        }
+
+        try {
+            CartPreconditions.expect(UUID.fromString(cartId), ifMatch);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // No cart can match: the precondition fails rather than letting the write through
+            logger.debug("If-Match failed for malformed cart id: {}", cartId);
+            response.setStatus(HttpStatus.PRECONDITION_FAILED.value());
+            return false;
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        CartPreconditions.clear();
+    }
+}
@@ -0,0 +1,38 @@
+package com.shah_s.bakery_cart_service.config;
+
+import java.util.UUID;
+
+// If-Match of the current request, kept on the request thread from CartPreconditionInterceptor until
+// the request completes. The cart mutation of the request takes it (CartLaneAspect) and checks it
+// against the cart's version inside the mutation's transaction.
+public final class CartPreconditions {
+
+    private record Expectation(UUID cartId, String ifMatch) {}
+
+    private static final ThreadLocal<Expectation> CURRENT = new ThreadLocal<>();
+
+    private CartPreconditions() {}
+
+    public static void expect(UUID cartId, String ifMatch) {
+        CURRENT.set(new Expectation(cartId, ifMatch));
+    }
+
+    // Whether the request carries an If-Match for the cart that no mutation has taken yet
+    public static boolean pending(UUID cartId) {
+        Expectation expectation = CURRENT.get();
+        return expectation != null && expectation.cartId().equals(cartId);
+    }
+
+    // The If-Match header for a mutation of the cart, or null; it is checked by one mutation only
+    public static String take(UUID cartId) {
+        Expectation expectation = CURRENT.get();
+        if (expectation == null || !expectation.cartId().equals(cartId)) return null;
+
+        CURRENT.remove();
+        return expectation.ifMatch();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
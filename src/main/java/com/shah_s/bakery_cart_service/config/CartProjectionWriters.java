@@ -0,0 +1,66 @@
+package com.shah_s.bakery_cart_service.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.shah_s.bakery_cart_service.dto.CartProjection;
+import com.shah_s.bakery_cart_service.dto.CartResponse;
+import com.shah_s.bakery_cart_service.exception.CartServiceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One ObjectWriter per requested fieldset, built once (root serializer prefetched) and reused.
+// The property filter is attached through a mixin on a copy of the mapper, so the application
+// ObjectMapper keeps serializing CartResponse in full.
+@Component
+public class CartProjectionWriters {
+
+    private static final String FILTER_ID = "cartProjection";
+
+    private final ObjectWriter fullWriter;
+    private final ObjectMapper projectionMapper;
+    private final Map<CartProjection, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    @Value("${cart.projections.max-cached-writers:256}")
+    private Integer maxCachedWriters;
+
+    public CartProjectionWriters(ObjectMapper objectMapper) {
+        this.fullWriter = objectMapper.writerFor(CartResponse.class);
+        this.projectionMapper = objectMapper.copy().addMixIn(CartResponse.class, ProjectedCartResponse.class);
+    }
+
+    public String write(CartResponse response, CartProjection projection) {
+        try {
+            return writerFor(projection).writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new CartServiceException("Failed to serialize cart: " + e.getMessage());
+        }
+    }
+
+    // Private helper methods
+    private ObjectWriter writerFor(CartProjection projection) {
+        if (projection.isAll()) return fullWriter;
+
+        ObjectWriter writer = writers.get(projection);
+        if (writer != null) return writer;
+
+        writer = projectionMapper.writerFor(CartResponse.class)
+                .with(new SimpleFilterProvider()
+                        .addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(projection.fields())));
+        // Arbitrary fieldsets are still served once the cache is full, just not kept
+        if (writers.size() < maxCachedWriters) {
+            writers.putIfAbsent(projection, writer);
+        }
+        return writer;
+    }
+
+    @JsonFilter(FILTER_ID)
+    private abstract static class ProjectedCartResponse {
+    }
+}
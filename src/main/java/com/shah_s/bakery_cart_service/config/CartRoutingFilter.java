@@ -0,0 +1,246 @@
+package com.shah_s.bakery_cart_service.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Optional cross-node routing of cart mutations (cart.lanes.routing.enabled): the instances of this
+// service registered in Eureka form a consistent hash ring, and a POST/PUT/PATCH/DELETE on
+// /api/carts/{cartId}/... arriving at the wrong instance is forwarded to the owner of the cart, so
+// the per-cart lanes (CartMutationLanes) order the cart's mutations across the cluster as well.
+// Instances joining or leaving only move the carts of their ring segments.
+//
+// Forwarded requests carry X-Cart-Routed and are always handled where they land, so routing never
+// loops while instances disagree about the ring. An owner that cannot be connected to is bypassed
+// (the request is handled locally, ordered by the database only, as without routing); one that took
+// the request but did not answer gets a 502. Requests not keyed by a cart path (merge) are not routed.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class CartRoutingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartRoutingFilter.class);
+
+    public static final String ROUTED_HEADER = "X-Cart-Routed";
+
+    private static final Pattern CART_PATH = Pattern.compile("^/api/carts/([0-9a-fA-F-]{36})(/.*)?$");
+    private static final Set<String> MUTATING_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection", "content-length", "expect", "host", "keep-alive", "proxy-connection",
+            "te", "trailer", "transfer-encoding", "upgrade");
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final HttpClient httpClient;
+    private volatile Ring ring = new Ring(List.of(), new TreeMap<>());
+
+    @Value("${cart.lanes.routing.enabled:false}")
+    private Boolean enabled;
+
+    @Value("${cart.lanes.routing.virtual-nodes:100}")
+    private Integer virtualNodes;
+
+    @Value("${cart.lanes.routing.timeout-ms:5000}")
+    private Long timeoutMs;
+
+    @Value("${spring.application.name}")
+    private String serviceId;
+
+    public CartRoutingFilter(DiscoveryClient discoveryClient, ObjectProvider<Registration> registration) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !MUTATING_METHODS.contains(request.getMethod())
+                || request.getHeader(ROUTED_HEADER) != null
+                || !CART_PATH.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Registration self = registration.getIfAvailable();
+        Matcher matcher = CART_PATH.matcher(request.getRequestURI());
+        if (self == null || !matcher.matches()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ServiceInstance owner = ownerOf(UUID.fromString(matcher.group(1)));
+        if (owner == null || owner.getInstanceId().equals(self.getInstanceId())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        try {
+            forward(request, body, response, owner, self);
+        } catch (ConnectException | HttpConnectTimeoutException e) {
+            logger.warn("Cart owner {} unreachable, handling cart request locally: {}", owner.getInstanceId(), e.getMessage());
+            filterChain.doFilter(new BufferedBodyRequest(request, body), response);
+        } catch (IOException e) {
+            // Sent but not answered: the owner may have applied it, so it is not retried here
+            logger.warn("Routing to {} failed: {}", owner.getInstanceId(), e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY, "Cart owner did not answer");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException("Interrupted while routing cart request", e);
+        }
+    }
+
+    // Private helper methods
+    private ServiceInstance ownerOf(UUID cartId) {
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+        Ring current = ring;
+        if (!current.instances().equals(instanceIds(instances))) {
+            current = buildRing(instances);
+            ring = current;
+        }
+        if (current.nodes().isEmpty()) return null;
+
+        Map.Entry<Long, ServiceInstance> node = current.nodes().ceilingEntry(hash(cartId.toString()));
+        return (node != null ? node : current.nodes().firstEntry()).getValue();
+    }
+
+    private Ring buildRing(List<ServiceInstance> instances) {
+        NavigableMap<Long, ServiceInstance> nodes = new TreeMap<>();
+        for (ServiceInstance instance : instances) {
+            for (int i = 0; i < virtualNodes; i++) {
+                nodes.put(hash(instance.getInstanceId() + "#" + i), instance);
+            }
+        }
+        return new Ring(instanceIds(instances), Collections.unmodifiableNavigableMap(nodes));
+    }
+
+    private List<String> instanceIds(List<ServiceInstance> instances) {
+        return instances.stream().map(ServiceInstance::getInstanceId).sorted().toList();
+    }
+
+    private long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void forward(HttpServletRequest request, byte[] body, HttpServletResponse response, ServiceInstance owner,
+                         Registration self) throws IOException, InterruptedException {
+        String query = request.getQueryString();
+        URI uri = URI.create(owner.getUri() + request.getRequestURI() + (query != null ? "?" + query : ""));
+
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(body))
+                .header(ROUTED_HEADER, self.getInstanceId());
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) continue;
+            for (String value : Collections.list(request.getHeaders(name))) {
+                forwarded.header(name, value);
+            }
+        }
+
+        HttpResponse<byte[]> answer = httpClient.send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+        response.setStatus(answer.statusCode());
+        answer.headers().map().forEach((name, values) -> {
+            if (HOP_BY_HOP_HEADERS.contains(name.toLowerCase()) || name.startsWith(":")) return;
+            values.forEach(value -> response.addHeader(name, value));
+        });
+        response.getOutputStream().write(answer.body());
+    }
+
+    // Request whose body was read for forwarding, handed to the local chain when the owner is unreachable
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+
+    // Hash ring of the instances it was built from (sorted instance ids)
+    private record Ring(List<String> instances, NavigableMap<Long, ServiceInstance> nodes) {
+    }
+}
@@ -0,0 +1,293 @@
+package com.shah_s.bakery_cart_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Stampede protection around a Redis cache, for @Cacheable(sync = true) lookups:
+// - concurrent misses of a key on one node share a single load (in-flight future per key)
+// - across nodes, the load runs under a short Redis lock; other nodes poll the cache meanwhile
+// - hits refresh early with XFetch probability (-delta * beta * ln(rand) >= remaining TTL), where
+//   delta is the average load time of this cache, so hot keys are reloaded before they expire. The
+//   expiry is remembered with each value this node writes (or read once with PTTL for values other
+//   nodes wrote), so hits cost no extra Redis round trip.
+//
+// Plain get/put/evict calls pass straight through to the wrapped cache.
+public class CoalescingCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingCache.class);
+
+    private static final String LOCK_PREFIX = "cache-lock:";
+    private static final int MAX_TRACKED_EXPIRIES = 10_000;
+
+    // Release the lock only if it is still ours (it may have expired and been taken over)
+    private static final RedisScript<Long> UNLOCK = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private final Cache delegate;
+    private final StringRedisTemplate redisTemplate;
+    private final Duration lockTtl;
+    private final long lockPollMillis;
+    private final double earlyRefreshBeta;
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Object, Long> expiries = new ConcurrentHashMap<>(); // Epoch millis
+    private volatile double averageLoadMillis;
+
+    public CoalescingCache(Cache delegate, StringRedisTemplate redisTemplate, Duration lockTtl,
+                           long lockPollMillis, double earlyRefreshBeta) {
+        this.delegate = delegate;
+        this.redisTemplate = redisTemplate;
+        this.lockTtl = lockTtl;
+        this.lockPollMillis = lockPollMillis;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            if (shouldRefreshEarly(key)) {
+                refreshEarly(key, valueLoader);
+            }
+            return (T) cached.get();
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return (T) join(inFlight);
+        }
+
+        try {
+            Object value = loadOnce(key, valueLoader);
+            load.complete(value);
+            return (T) value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+        rememberExpiry(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        expiries.remove(key); // Unknown whether ours was written
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        expiries.remove(key);
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        expiries.remove(key);
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        expiries.clear();
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        expiries.clear();
+        return delegate.invalidate();
+    }
+
+    // Private helper methods
+
+    // One load per key across nodes: the lock holder loads, the others wait for its value
+    private Object loadOnce(Object key, Callable<?> valueLoader) {
+        String lockKey = lockKey(key);
+        String token = UUID.randomUUID().toString();
+
+        if (tryLock(lockKey, token)) {
+            try {
+                // Filled by another node between our miss and the lock
+                ValueWrapper cached = delegate.get(key);
+                return cached != null ? cached.get() : loadAndPut(key, valueLoader);
+            } finally {
+                unlock(lockKey, token);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + lockTtl.toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(lockPollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            ValueWrapper cached = delegate.get(key);
+            if (cached != null) {
+                return cached.get();
+            }
+        }
+
+        // The other node failed or is too slow: load without the lock
+        logger.debug("Cache lock wait timed out for {}::{}", getName(), key);
+        return loadAndPut(key, valueLoader);
+    }
+
+    private Object loadAndPut(Object key, Callable<?> valueLoader) {
+        long start = System.nanoTime();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        recordLoadTime((System.nanoTime() - start) / 1_000_000.0);
+
+        if (value != null) {
+            delegate.put(key, value);
+            rememberExpiry(key, value);
+        }
+        return value;
+    }
+
+    private boolean shouldRefreshEarly(Object key) {
+        double delta = averageLoadMillis;
+        if (earlyRefreshBeta <= 0 || delta <= 0) return false;
+
+        long now = System.currentTimeMillis();
+        Long expiresAt = expiries.get(key);
+        if (expiresAt == null) {
+            // Written by another node: ask Redis once, then remember it like our own writes
+            Long remainingMillis = redisTemplate.getExpire(redisKey(key), TimeUnit.MILLISECONDS);
+            if (remainingMillis == null || remainingMillis < 0) return false;
+            expiresAt = now + remainingMillis;
+            trackExpiry(key, expiresAt);
+        }
+
+        double gap = -delta * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return gap >= expiresAt - now;
+    }
+
+    // Expiry of a value we just wrote, from the cache's TTL (entries without a TTL are not tracked)
+    private void rememberExpiry(Object key, Object value) {
+        if (!(delegate instanceof RedisCache redisCache)) return;
+
+        Duration ttl = redisCache.getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+        if (ttl.isZero() || ttl.isNegative()) {
+            expiries.remove(key);
+            return;
+        }
+        trackExpiry(key, System.currentTimeMillis() + ttl.toMillis());
+    }
+
+    // Bounded: past the limit the map starts over, and forgotten keys are looked up again
+    private void trackExpiry(Object key, long expiresAt) {
+        if (expiries.size() >= MAX_TRACKED_EXPIRIES) {
+            expiries.clear();
+        }
+        expiries.put(key, expiresAt);
+    }
+
+    // Reload in the calling request (the loader is only valid here), by a single caller across nodes;
+    // if the reload fails, the cached value is still served
+    private void refreshEarly(Object key, Callable<?> valueLoader) {
+        if (!refreshing.add(key)) return;
+
+        String lockKey = lockKey(key);
+        String token = UUID.randomUUID().toString();
+        try {
+            if (tryLock(lockKey, token)) {
+                try {
+                    loadAndPut(key, valueLoader);
+                } finally {
+                    unlock(lockKey, token);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Early refresh of {}::{} failed: {}", getName(), key, e.getMessage());
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    private Object join(CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean tryLock(String lockKey, String token) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTtl));
+    }
+
+    private void unlock(String lockKey, String token) {
+        redisTemplate.execute(UNLOCK, List.of(lockKey), token);
+    }
+
+    // Exponentially weighted average, so delta follows changes in load cost
+    private void recordLoadTime(double millis) {
+        double current = averageLoadMillis;
+        averageLoadMillis = current == 0 ? millis : current * 0.8 + millis * 0.2;
+    }
+
+    // Key layout of RedisCache with the default prefix (CacheKeyPrefix.simple)
+    private String redisKey(Object key) {
+        return getName() + "::" + key;
+    }
+
+    private String lockKey(Object key) {
+        return LOCK_PREFIX + redisKey(key);
+    }
+}
@@ -0,0 +1,35 @@
+package com.shah_s.bakery_cart_service.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+// Hands out the caches of the wrapped manager through a decorator (see CacheConfig.cacheManager)
+public class DecoratingCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final UnaryOperator<Cache> decorator;
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public DecoratingCacheManager(CacheManager delegate, UnaryOperator<Cache> decorator) {
+        this.delegate = delegate;
+        this.decorator = decorator;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, cacheName -> {
+            Cache cache = delegate.getCache(cacheName);
+            return cache != null ? decorator.apply(cache) : null;
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
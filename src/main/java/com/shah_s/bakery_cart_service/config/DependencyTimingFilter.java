@@ -0,0 +1,65 @@
+package com.shah_s.bakery_cart_service.config;
+
+import com.shah_s.bakery_cart_service.config.DependencyTimings.Dependency;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Dependency time breakdown per request: cart.request.dependency.time{method, uri, dependency} records,
+// for every API request, the time spent in the database, Redis and remote services and the rest
+// (dependency=app). The four series of one endpoint add up to its response time.
+@Component
+public class DependencyTimingFilter extends OncePerRequestFilter {
+
+    private static final String REQUEST_DEPENDENCY_TIME = "cart.request.dependency.time";
+    private static final String DESCRIPTION = "Time per request spent in each dependency";
+
+    private final LatencyTimers latencyTimers;
+
+    public DependencyTimingFilter(LatencyTimers latencyTimers) {
+        this.latencyTimers = latencyTimers;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        DependencyTimings.startRequest();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long total = System.nanoTime() - start;
+            long[] nanos = DependencyTimings.endRequest();
+            record(request, nanos, total);
+        }
+    }
+
+    // Private helper methods
+    private void record(HttpServletRequest request, long[] nanos, long total) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern != null ? pattern.toString() : "UNKNOWN");
+
+        long dependencies = 0;
+        for (Dependency dependency : Dependency.values()) {
+            long spent = nanos[dependency.ordinal()];
+            dependencies += spent;
+            latencyTimers.timer(REQUEST_DEPENDENCY_TIME, DESCRIPTION, tags.and("dependency", dependency.name().toLowerCase()))
+                    .record(spent, TimeUnit.NANOSECONDS);
+        }
+        latencyTimers.timer(REQUEST_DEPENDENCY_TIME, DESCRIPTION, tags.and("dependency", "app"))
+                .record(Math.max(total - dependencies, 0), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,101 @@
+package com.shah_s.bakery_cart_service.config;
+
+import java.util.concurrent.Callable;
+
+// Per-request time spent in each dependency (database, Redis, remote services), kept on the request
+// thread between startRequest() and endRequest(). Calls nest (a cache lookup runs a loader that queries
+// the database), so each dependency is charged its own time only: the time of nested calls is
+// subtracted from the call around them.
+//
+// Calls made outside a timed request (schedulers, async senders) are not tracked, except work handed
+// to another thread while the request thread waits for it (onBehalfOfRequest).
+public final class DependencyTimings {
+
+    public enum Dependency {
+        DB,
+        REDIS,
+        REMOTE
+    }
+
+    private static final ThreadLocal<Timings> CURRENT = new ThreadLocal<>();
+
+    private DependencyTimings() {}
+
+    public static void startRequest() {
+        CURRENT.set(new Timings());
+    }
+
+    // Own time in nanoseconds per dependency (indexed by ordinal), or null if no request was started
+    public static long[] endRequest() {
+        Timings timings = CURRENT.get();
+        CURRENT.remove();
+        return timings != null ? timings.nanos : null;
+    }
+
+    // Returns null when no request is being timed; exit(null) is a no-op
+    public static Frame enter(Dependency dependency) {
+        Timings timings = CURRENT.get();
+        if (timings == null) return null;
+
+        Frame frame = new Frame(timings, dependency, timings.top);
+        timings.top = frame;
+        return frame;
+    }
+
+    // Application code called back from inside a dependency call (a cache loader): its time is taken
+    // off the enclosing call and not charged to any dependency
+    public static Frame enterApplication() {
+        return enter(null);
+    }
+
+    // Run a call on another thread against the current request's timings. Only for calls the request
+    // thread waits on (cart lanes): the timings are never used by two threads at once.
+    public static <T> Callable<T> onBehalfOfRequest(Callable<T> call) {
+        Timings timings = CURRENT.get();
+        if (timings == null) return call;
+
+        return () -> {
+            CURRENT.set(timings);
+            try {
+                return call.call();
+            } finally {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public static void exit(Frame frame) {
+        if (frame == null) return;
+
+        long elapsed = System.nanoTime() - frame.start;
+        Timings timings = frame.timings;
+        if (frame.dependency != null) {
+            timings.nanos[frame.dependency.ordinal()] += elapsed - frame.nestedNanos;
+        }
+        timings.top = frame.parent;
+        if (frame.parent != null) {
+            frame.parent.nestedNanos += elapsed;
+        }
+    }
+
+    private static final class Timings {
+
+        private final long[] nanos = new long[Dependency.values().length];
+        private Frame top;
+    }
+
+    public static final class Frame {
+
+        private final Timings timings;
+        private final Dependency dependency;
+        private final Frame parent;
+        private final long start = System.nanoTime();
+        private long nestedNanos;
+
+        private Frame(Timings timings, Dependency dependency, Frame parent) {
+            this.timings = timings;
+            this.dependency = dependency;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.shah_s.bakery_cart_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Migrations run on startup unless cart.flyway.migrate-on-startup=false. Unlike spring.flyway.enabled,
+// which AOT processing resolves at build time, this is read when the application starts, so it also
+// applies to the AOT-processed jar (the CDS training run has no database).
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${cart.flyway.migrate-on-startup:true}") boolean migrateOnStartup) {
+        return flyway -> {
+            if (migrateOnStartup) {
+                flyway.migrate();
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.shah_s.bakery_cart_service.config;
+
+import com.shah_s.bakery_cart_service.service.HealthSampler;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Supplier;
+
+// Actuator "db" and "redis" indicators answered from HealthSampler instead of probing on every call.
+// The bean names replace Spring Boot's own DataSource and Redis indicators. The readiness group
+// includes both (management.endpoint.health.group.readiness); liveness does not, so a dependency
+// outage takes the instance out of rotation without restarting it.
+@Configuration
+public class HealthConfig {
+
+    @Bean
+    public HealthIndicator dbHealthIndicator(HealthSampler healthSampler) {
+        return sampled(healthSampler::getDatabase, healthSampler::getDatabaseUrl);
+    }
+
+    @Bean
+    public HealthIndicator redisHealthIndicator(HealthSampler healthSampler) {
+        return sampled(healthSampler::getRedis, () -> null);
+    }
+
+    private HealthIndicator sampled(Supplier<HealthSampler.Sample> sample, Supplier<String> url) {
+        return () -> {
+            HealthSampler.Sample current = sample.get();
+            Health.Builder health = current.up() ? Health.up() : Health.down();
+            health.withDetail("latencyMs", current.latencyMs());
+            if (current.sampledAt() != null) {
+                health.withDetail("sampledAt", current.sampledAt().toString());
+            }
+            if (current.error() != null) {
+                health.withDetail("error", current.error());
+            }
+            if (url.get() != null) {
+                health.withDetail("url", url.get());
+            }
+            return health.build();
+        };
+    }
+}
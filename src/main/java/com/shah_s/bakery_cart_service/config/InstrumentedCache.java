@@ -0,0 +1,159 @@
+package com.shah_s.bakery_cart_service.config;
+
+import com.shah_s.bakery_cart_service.config.DependencyTimings.Dependency;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Micrometer meters around a cache, tagged with the cache name:
+// cache.gets{result=hit|miss}, cache.puts, cache.evictions, cache.get.latency, cache.put.latency.
+// Payload sizes are recorded by the value serializer (MeasuredRedisSerializer).
+// Cache calls are charged to the current request as Redis time (DependencyTimings), loaders excluded.
+public class InstrumentedCache implements Cache {
+
+    private final Cache delegate;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter puts;
+    private final Counter evictions;
+    private final Timer getLatency;
+    private final Timer putLatency;
+
+    public InstrumentedCache(Cache delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        String name = delegate.getName();
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit")
+                .description("Cache lookups that found a value").register(registry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss")
+                .description("Cache lookups that found no value").register(registry);
+        this.puts = Counter.builder("cache.puts").tag("cache", name)
+                .description("Values written to the cache").register(registry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", name)
+                .description("Evictions and clears of the cache").register(registry);
+        this.getLatency = Timer.builder("cache.get.latency").tag("cache", name)
+                .description("Time to read a value from the cache, loads excluded")
+                .publishPercentileHistogram().register(registry);
+        this.putLatency = Timer.builder("cache.put.latency").tag("cache", name)
+                .description("Time to write a value to the cache")
+                .publishPercentileHistogram().register(registry);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        long start = System.nanoTime();
+        ValueWrapper value = redis(() -> delegate.get(key));
+        getLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        (value != null ? hits : misses).increment();
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        long start = System.nanoTime();
+        T value = redis(() -> delegate.get(key, type));
+        getLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        (value != null ? hits : misses).increment();
+        return value;
+    }
+
+    // A miss is a call whose loader ran here; callers served by a load coalesced elsewhere count as hits
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        AtomicBoolean loaded = new AtomicBoolean();
+        long start = System.nanoTime();
+        T value = redis(() -> delegate.get(key, () -> {
+            loaded.set(true);
+            DependencyTimings.Frame frame = DependencyTimings.enterApplication();
+            try {
+                return valueLoader.call();
+            } finally {
+                DependencyTimings.exit(frame);
+            }
+        }));
+        if (loaded.get()) {
+            misses.increment();
+        } else {
+            getLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            hits.increment();
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        putLatency.record(() -> redis(() -> {
+            delegate.put(key, value);
+            return null;
+        }));
+        puts.increment();
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = putLatency.record(() -> redis(() -> delegate.putIfAbsent(key, value)));
+        if (existing == null) {
+            puts.increment();
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        redis(() -> {
+            delegate.evict(key);
+            return null;
+        });
+        evictions.increment();
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = redis(() -> delegate.evictIfPresent(key));
+        if (evicted) {
+            evictions.increment();
+        }
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        redis(() -> {
+            delegate.clear();
+            return null;
+        });
+        evictions.increment();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = redis(delegate::invalidate);
+        evictions.increment();
+        return invalidated;
+    }
+
+    // Private helper methods
+    private <T> T redis(Supplier<T> call) {
+        DependencyTimings.Frame frame = DependencyTimings.enter(Dependency.REDIS);
+        try {
+            return call.get();
+        } finally {
+            DependencyTimings.exit(frame);
+        }
+    }
+}
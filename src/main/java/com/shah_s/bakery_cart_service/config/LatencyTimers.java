@@ -0,0 +1,39 @@
+package com.shah_s.bakery_cart_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Timers with the configured SLO histogram buckets (cart.metrics.slo-ms), so Prometheus gets
+// _bucket series to compute percentiles and SLO hit rates from. Timers are built once per tag set.
+@Component
+public class LatencyTimers {
+
+    private final MeterRegistry meterRegistry;
+    private final Duration[] serviceLevelObjectives;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public LatencyTimers(MeterRegistry meterRegistry,
+                         @Value("${cart.metrics.slo-ms:5,10,25,50,100,200,500,1000,2000}") long[] sloMillis) {
+        this.meterRegistry = meterRegistry;
+        this.serviceLevelObjectives = Arrays.stream(sloMillis).mapToObj(Duration::ofMillis).toArray(Duration[]::new);
+    }
+
+    public Timer timer(String name, String description, Tags tags) {
+        return timers.computeIfAbsent(new TimerKey(name, tags), key -> Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .serviceLevelObjectives(serviceLevelObjectives)
+                .register(meterRegistry));
+    }
+
+    private record TimerKey(String name, Tags tags) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.shah_s.bakery_cart_service.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+// Value serializer of a cache that records payload sizes (cache.payload.size{cache, operation})
+public class MeasuredRedisSerializer<T> implements RedisSerializer<T> {
+
+    private final RedisSerializer<T> delegate;
+    private final DistributionSummary writes;
+    private final DistributionSummary reads;
+
+    public MeasuredRedisSerializer(RedisSerializer<T> delegate, String cacheName, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.writes = payloadSize(cacheName, "write", registry);
+        this.reads = payloadSize(cacheName, "read", registry);
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes != null) {
+            writes.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes != null) {
+            reads.record(bytes.length);
+        }
+        return delegate.deserialize(bytes);
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return delegate.getTargetType();
+    }
+
+    private static DistributionSummary payloadSize(String cacheName, String operation, MeterRegistry registry) {
+        return DistributionSummary.builder("cache.payload.size")
+                .tag("cache", cacheName)
+                .tag("operation", operation)
+                .baseUnit("bytes")
+                .description("Serialized size of cached values")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
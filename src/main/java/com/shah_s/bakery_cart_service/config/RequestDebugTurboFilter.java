@@ -0,0 +1,28 @@
+package com.shah_s.bakery_cart_service.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+// Lets DEBUG and above through for this service's loggers while the current request is flagged
+// (RequestLogContextFilter sets the MDC key), regardless of the configured levels. Other events are
+// left to the normal level check. Registered in logback-spring.xml.
+public class RequestDebugTurboFilter extends TurboFilter {
+
+    public static final String MDC_KEY = "debugLog";
+
+    private static final String APPLICATION_PACKAGE = "com.shah_s.bakery_cart_service";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != null && level.isGreaterOrEqual(Level.DEBUG)
+                && logger.getName().startsWith(APPLICATION_PACKAGE)
+                && MDC.get(MDC_KEY) != null) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
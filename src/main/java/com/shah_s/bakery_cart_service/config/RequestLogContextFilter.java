@@ -0,0 +1,80 @@
+package com.shah_s.bakery_cart_service.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+// Log context of a request: the request id (X-Request-Id, or a generated one) goes into the MDC of
+// every line, and trusted requests sending the debug header, or picked by sampling, are logged at
+// DEBUG (RequestDebugTurboFilter) without lowering the levels for everyone else.
+//
+// The debug header is honoured when it carries the configured token (cart.logging.debug-token), or
+// "true" from an ADMIN caller (X-User-Role, set by the API gateway); anyone else could otherwise
+// flood the logs. Client request ids are only kept if short and made of safe characters.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLogContextFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String REQUEST_ID_MDC_KEY = "requestId";
+
+    private static final String USER_ROLE_HEADER = "X-User-Role";
+    private static final Pattern REQUEST_ID = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
+    @Value("${cart.logging.debug-header:X-Debug-Log}")
+    private String debugHeader;
+
+    @Value("${cart.logging.debug-token:}")
+    private String debugToken;
+
+    @Value("${cart.logging.debug-sample-rate:0.0}")
+    private Double debugSampleRate;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || !REQUEST_ID.matcher(requestId).matches()) {
+            requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+
+        MDC.put(REQUEST_ID_MDC_KEY, requestId);
+        if (isDebugRequested(request)) {
+            MDC.put(RequestDebugTurboFilter.MDC_KEY, "true");
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(REQUEST_ID_MDC_KEY);
+            MDC.remove(RequestDebugTurboFilter.MDC_KEY);
+        }
+    }
+
+    // Private helper methods
+    private boolean isDebugRequested(HttpServletRequest request) {
+        String debug = request.getHeader(debugHeader);
+        if (debug != null) {
+            if (!debugToken.isEmpty() && MessageDigest.isEqual(
+                    debug.getBytes(StandardCharsets.UTF_8), debugToken.getBytes(StandardCharsets.UTF_8))) {
+                return true;
+            }
+            if ("true".equalsIgnoreCase(debug) && "ADMIN".equals(request.getHeader(USER_ROLE_HEADER))) {
+                return true;
+            }
+        }
+        return debugSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < debugSampleRate;
+    }
+}
@@ -0,0 +1,20 @@
+package com.shah_s.bakery_cart_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CartPreconditionInterceptor cartPreconditionInterceptor;
+
+    public WebConfig(CartPreconditionInterceptor cartPreconditionInterceptor) {
+        this.cartPreconditionInterceptor = cartPreconditionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(cartPreconditionInterceptor).addPathPatterns("/api/carts/*", "/api/carts/*/**");
+    }
+}
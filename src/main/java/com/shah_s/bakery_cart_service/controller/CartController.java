@@ -2,8 +2,9 @@ package com.shah_s.bakery_cart_service.controller;
 
 import com.shah_s.bakery_cart_service.dto.*;
 import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.service.CartEventService;
 import com.shah_s.bakery_cart_service.service.CartService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_cart_service.service.CartWriteCoalescer;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,9 +14,13 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -30,11 +35,17 @@ public class CartController {
 
     private static final Logger logger = LoggerFactory.getLogger(CartController.class);
 
+    private static final String RESPONSE_MODE_HEADER = "X-Response-Mode";
+    private static final String DELTA_MODE = "delta";
+
     @Autowired
     private CartService cartService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private CartEventService cartEventService;
+
+    @Autowired
+    private CartWriteCoalescer cartWriteCoalescer;
 
     // Create cart
     @PostMapping
@@ -60,50 +71,67 @@ public class CartController {
         return ResponseEntity.status(HttpStatus.CREATED).body(cart);
     }
 
-    // Get cart by ID
+    // Get cart by ID (served from the cart snapshot: the stored JSON is written out as is).
+    // If-None-Match is answered with 304 from the snapshot version alone.
+    // fields=id,totalAmount,... returns only those fields, built from the cart instead of the snapshot.
     @GetMapping("/{cartId}")
-    public ResponseEntity<CartResponse> getCartById(
+    public ResponseEntity<String> getCartById(
             @PathVariable UUID cartId,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
-
-        logger.info("Get cart by ID request received: {}", cartId);
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = "fields", required = false) String fields) {
+
+        logger.debug("Get cart by ID request received: {}", cartId);
+        CartProjection projection = CartProjection.parse(fields);
+
+        if (ifNoneMatch != null) {
+            CartSnapshot header = cartService.getCartSnapshotHeader(cartId);
+            if (header != null && canRead(header, userId, userRole)
+                    && CartSnapshot.etagMatches(ifNoneMatch, header.etag(projection))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(header.etag(projection)).build();
+            }
+        }
 
-        CartResponse cart = cartService.getCartById(cartId);
+        CartSnapshot cart = cartService.getCartProjection(cartId, projection);
 
         // Check if user can access this cart (unless admin)
-        if (userId != null && !"ADMIN".equals(userRole) && cart.getUserId() != null
-                && !cart.getUserId().equals(userId)) {
+        if (!canRead(cart, userId, userRole)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        logger.info("Cart retrieved: {}", cart.getId());
-        return ResponseEntity.ok(cart);
+        logger.debug("Cart retrieved: {}", cartId);
+        return snapshotResponse(cart, projection);
     }
 
-    // Get or create cart for user
+    // Get or create cart for user (served from the cart snapshot, with conditional GET and fields like above)
     @GetMapping("/user/{userId}")
-    public ResponseEntity<CartResponse> getOrCreateCartForUser(
+    public ResponseEntity<String> getOrCreateCartForUser(
             @PathVariable UUID userId,
             @RequestHeader(value = "X-User-Id", required = false) UUID requestUserId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = "fields", required = false) String fields) {
 
-        logger.info("Get or create cart for user request received: {}", userId);
+        logger.debug("Get or create cart for user request received: {}", userId);
+        CartProjection projection = CartProjection.parse(fields);
 
         // Check if user can access this cart (unless admin)
         if (requestUserId != null && !"ADMIN".equals(userRole) && !userId.equals(requestUserId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        Object result = cartService.getOrCreateCartForUser(userId);
-        CartResponse cart = CartService.convertIfMap(result, objectMapper);
-        if (cart == null) {
-            logger.error("Failed to convert cached value to CartResponse for user: {}", userId);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(null);
+        if (ifNoneMatch != null) {
+            CartSnapshot header = cartService.getCartSnapshotHeaderForUser(userId);
+            if (header != null && CartSnapshot.etagMatches(ifNoneMatch, header.etag(projection))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(header.etag(projection)).build();
+            }
         }
-        logger.info("Cart retrieved/created for user: {}", userId);
-        return ResponseEntity.ok(cart);
+
+        CartSnapshot cart = cartService.getCartProjectionForUser(userId, projection);
+
+        logger.debug("Cart retrieved/created for user: {}", userId);
+        return snapshotResponse(cart, projection);
     }
 
     // Get or create cart for session
@@ -125,13 +153,35 @@ public class CartController {
         return ResponseEntity.ok(cart);
     }
 
-    // Add item to cart
+    // Stream cart changes as server-sent events (replaces polling GET /{cartId})
+    @GetMapping(value = "/{cartId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamCartEvents(
+            @PathVariable UUID cartId,
+            @RequestHeader(value = "X-User-Id", required = false) UUID userId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.debug("Cart event stream requested: {}", cartId);
+
+        // Check cart access
+        if (!canAccessCart(cartId, userId, userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no") // Disable proxy buffering of the stream
+                .body(cartEventService.subscribe(cartId));
+    }
+
+    // Add item to cart. Item mutations answer with the full cart, or with the changed item, totals
+    // and version only when delta mode is requested (X-Response-Mode: delta or ?response=delta).
     @PostMapping("/{cartId}/items")
-    public ResponseEntity<CartResponse> addItemToCart(
+    public ResponseEntity<?> addItemToCart(
             @PathVariable UUID cartId,
             @Valid @RequestBody AddItemRequest request,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = RESPONSE_MODE_HEADER, required = false) String responseModeHeader,
+            @RequestParam(value = "response", required = false) String responseMode) {
 
         logger.info("Add item to cart request received: {} product: {}", cartId, request.getProductId());
 
@@ -140,20 +190,26 @@ public class CartController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
+        if (isDeltaMode(responseModeHeader, responseMode)) {
+            return deltaResponse(cartService.addItemToCartDelta(cartId, request));
+        }
+
         CartResponse cart = cartService.addItemToCart(cartId, request);
 
         logger.info("Item added to cart successfully: {}", cartId);
         return ResponseEntity.ok(cart);
     }
 
-    // Update item in cart
+    // Update item in cart (merged with concurrent updates of the cart when cart.coalescing is enabled)
     @PutMapping("/{cartId}/items/{itemId}")
-    public ResponseEntity<CartResponse> updateCartItem(
+    public ResponseEntity<?> updateCartItem(
             @PathVariable UUID cartId,
             @PathVariable UUID itemId,
             @Valid @RequestBody UpdateItemRequest request,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = RESPONSE_MODE_HEADER, required = false) String responseModeHeader,
+            @RequestParam(value = "response", required = false) String responseMode) {
 
         logger.info("Update cart item request received: {} item: {}", cartId, itemId);
 
@@ -162,7 +218,11 @@ public class CartController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        CartResponse cart = cartService.updateCartItem(cartId, itemId, request);
+        if (isDeltaMode(responseModeHeader, responseMode)) {
+            return deltaResponse(cartWriteCoalescer.updateCartItemDelta(cartId, itemId, request));
+        }
+
+        CartResponse cart = cartWriteCoalescer.updateCartItem(cartId, itemId, request);
 
         logger.info("Cart item updated successfully: {}", itemId);
         return ResponseEntity.ok(cart);
@@ -170,11 +230,13 @@ public class CartController {
 
     // Remove item from cart
     @DeleteMapping("/{cartId}/items/{itemId}")
-    public ResponseEntity<CartResponse> removeItemFromCart(
+    public ResponseEntity<?> removeItemFromCart(
             @PathVariable UUID cartId,
             @PathVariable UUID itemId,
             @RequestHeader(value = "X-User-Id", required = false) UUID userId,
-            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+            @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = RESPONSE_MODE_HEADER, required = false) String responseModeHeader,
+            @RequestParam(value = "response", required = false) String responseMode) {
 
         logger.info("Remove item from cart request received: {} item: {}", cartId, itemId);
 
@@ -183,6 +245,10 @@ public class CartController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
+        if (isDeltaMode(responseModeHeader, responseMode)) {
+            return deltaResponse(cartService.removeItemFromCartDelta(cartId, itemId));
+        }
+
         CartResponse cart = cartService.removeItemFromCart(cartId, itemId);
 
         logger.info("Item removed from cart successfully: {}", itemId);
@@ -209,6 +275,46 @@ public class CartController {
         return ResponseEntity.ok(cart);
     }
 
+    // Save all items for later
+    @PostMapping("/{cartId}/items/save-for-later")
+    public ResponseEntity<CartResponse> saveAllItemsForLater(
+            @PathVariable UUID cartId,
+            @RequestHeader(value = "X-User-Id", required = false) UUID userId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Save all items for later request received: {}", cartId);
+
+        // Check cart access
+        if (!canAccessCart(cartId, userId, userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CartResponse cart = cartService.saveAllItemsForLater(cartId);
+
+        logger.info("All items saved for later: {}", cartId);
+        return ResponseEntity.ok(cart);
+    }
+
+    // Move all saved items back to cart
+    @PostMapping("/{cartId}/items/move-to-cart")
+    public ResponseEntity<CartResponse> moveAllItemsToCart(
+            @PathVariable UUID cartId,
+            @RequestHeader(value = "X-User-Id", required = false) UUID userId,
+            @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        logger.info("Move all saved items to cart request received: {}", cartId);
+
+        // Check cart access
+        if (!canAccessCart(cartId, userId, userRole)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CartResponse cart = cartService.moveAllItemsToCart(cartId);
+
+        logger.info("All saved items moved to cart: {}", cartId);
+        return ResponseEntity.ok(cart);
+    }
+
     // Update cart details
     @PatchMapping("/{cartId}")
     public ResponseEntity<CartResponse> updateCart(
@@ -397,18 +503,43 @@ public class CartController {
         return ResponseEntity.ok(response);
     }
 
-    // Private helper method for access control
+    // Private helper methods
+    private ResponseEntity<String> snapshotResponse(CartSnapshot cart, CartProjection projection) {
+        return ResponseEntity.ok()
+                .eTag(cart.etag(projection))
+                .cacheControl(CacheControl.noCache().cachePrivate()) // Always revalidate with the ETag
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cart.body());
+    }
+
+    private boolean isDeltaMode(String responseModeHeader, String responseMode) {
+        return DELTA_MODE.equalsIgnoreCase(responseModeHeader) || DELTA_MODE.equalsIgnoreCase(responseMode);
+    }
+
+    // Delta body with the new ETag, so clients can keep using If-None-Match / If-Match without a refetch
+    private ResponseEntity<CartEvent> deltaResponse(CartEvent delta) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (delta.getVersion() != null) {
+            response.eTag(CartSnapshot.etag(delta.getCartId(), delta.getVersion()));
+        }
+        return response.body(delta);
+    }
+
+    private boolean canRead(CartSnapshot cart, UUID userId, String userRole) {
+        return userId == null || "ADMIN".equals(userRole) || cart.userId() == null || cart.userId().equals(userId);
+    }
+
+    // Access control
     private boolean canAccessCart(UUID cartId, UUID userId, String userRole) {
         if ("ADMIN".equals(userRole)) {
             return true; // Admins can access any cart
         }
 
         try {
-            CartResponse cart = cartService.getCartById(cartId);
+            UUID owner = cartService.getCartOwner(cartId);
 
             // Check if user owns the cart or it's a guest cart
-            return cart.getUserId() == null ||
-                    (userId != null && userId.equals(cart.getUserId()));
+            return owner == null || owner.equals(userId);
         } catch (Exception e) {
             logger.warn("Failed to check cart access for cart {}: {}", cartId, e.getMessage());
             return false;
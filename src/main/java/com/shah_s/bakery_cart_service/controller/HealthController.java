@@ -1,15 +1,21 @@
 package com.shah_s.bakery_cart_service.controller;
 
+import com.shah_s.bakery_cart_service.service.HealthSampler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import javax.sql.DataSource;
-import java.sql.Connection;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api")
@@ -17,10 +23,13 @@ import java.util.Map;
 public class HealthController {
 
     @Autowired
-    private DataSource dataSource;
+    private HealthSampler healthSampler;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     // Main service health check
     @GetMapping("/health")
@@ -31,23 +40,20 @@ public class HealthController {
         response.put("timestamp", LocalDateTime.now().toString());
         response.put("version", "1.0.0");
 
-        // Check database connectivity
-        try (Connection connection = dataSource.getConnection()) {
-            response.put("database", "UP");
-            response.put("databaseUrl", connection.getMetaData().getURL());
-        } catch (Exception e) {
-            response.put("database", "DOWN");
-            response.put("databaseError", e.getMessage());
+        // Dependency status from the latest background probes (HealthSampler), no probing per call
+        HealthSampler.Sample database = healthSampler.getDatabase();
+        response.put("database", database.up() ? "UP" : "DOWN");
+        if (healthSampler.getDatabaseUrl() != null) {
+            response.put("databaseUrl", healthSampler.getDatabaseUrl());
+        }
+        if (!database.up()) {
+            response.put("databaseError", database.error());
         }
 
-        // Check Redis connectivity
-        try {
-            redisTemplate.opsForValue().set("health-check", "OK");
-            String redisResponse = (String) redisTemplate.opsForValue().get("health-check");
-            response.put("redis", "OK".equals(redisResponse) ? "UP" : "DOWN");
-        } catch (Exception e) {
-            response.put("redis", "DOWN");
-            response.put("redisError", e.getMessage());
+        HealthSampler.Sample redis = healthSampler.getRedis();
+        response.put("redis", redis.up() ? "UP" : "DOWN");
+        if (!redis.up()) {
+            response.put("redisError", redis.error());
         }
 
         return ResponseEntity.ok(response);
@@ -91,11 +97,12 @@ public class HealthController {
         memory.put("usedMemory", (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024 + " MB");
         response.put("memory", memory);
 
-        // Cache info
+        // Cache info (per cache, from the meters of CacheConfig; full series at /actuator/prometheus)
         try {
-            Map<String, Object> cache = new HashMap<>();
-            cache.put("redisConnections", "active");
-            cache.put("cacheHitRate", "N/A"); // Would need cache statistics
+            Map<String, Object> cache = new TreeMap<>();
+            for (String cacheName : cacheManager.getCacheNames()) {
+                cache.put(cacheName, cacheSummary(cacheName));
+            }
             response.put("cache", cache);
         } catch (Exception e) {
             response.put("cache", Map.of("status", "ERROR", "error", e.getMessage()));
@@ -104,6 +111,39 @@ public class HealthController {
         return ResponseEntity.ok(response);
     }
 
+    private Map<String, Object> cacheSummary(String cacheName) {
+        double hits = count("cache.gets", cacheName, "result", "hit");
+        double misses = count("cache.gets", cacheName, "result", "miss");
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("hits", (long) hits);
+        summary.put("misses", (long) misses);
+        summary.put("hitRate", hits + misses > 0 ? String.format("%.2f%%", hits * 100 / (hits + misses)) : "N/A");
+        summary.put("puts", (long) count("cache.puts", cacheName, null, null));
+        summary.put("evictions", (long) count("cache.evictions", cacheName, null, null));
+        summary.put("getLatencyMeanMs", meanMillis("cache.get.latency", cacheName));
+        summary.put("putLatencyMeanMs", meanMillis("cache.put.latency", cacheName));
+
+        DistributionSummary payload = meterRegistry.find("cache.payload.size")
+                .tag("cache", cacheName).tag("operation", "write").summary();
+        if (payload != null) {
+            summary.put("payloadMeanBytes", Math.round(payload.mean()));
+            summary.put("payloadMaxBytes", Math.round(payload.max()));
+        }
+        return summary;
+    }
+
+    private double count(String meter, String cacheName, String tag, String value) {
+        Search search = meterRegistry.find(meter).tag("cache", cacheName);
+        Counter counter = tag != null ? search.tag(tag, value).counter() : search.counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private double meanMillis(String meter, String cacheName) {
+        Timer timer = meterRegistry.find(meter).tag("cache", cacheName).timer();
+        return timer != null ? Math.round(timer.mean(TimeUnit.MILLISECONDS) * 1000) / 1000.0 : 0;
+    }
+
     private String getUptime() {
         long uptime = java.lang.management.ManagementFactory.getRuntimeMXBean().getUptime();
         long seconds = uptime / 1000;
@@ -0,0 +1,75 @@
+package com.shah_s.bakery_cart_service.dto;
+
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Compact change notification pushed to cart subscribers (GET /api/carts/{cartId}/events), and the
+// body of item mutations in delta response mode. Carries the changed item and the new totals only;
+// clients refetch the cart on CART_UPDATED.
+@Getter
+@Setter
+public class CartEvent {
+
+    private Type type;
+    private UUID cartId;
+    private Long version; // null for carts not stored in the database
+    private CartItemResponse item; // ITEM_ADDED, ITEM_UPDATED
+    private UUID itemId; // ITEM_REMOVED
+    private Cart.CartStatus status;
+    private BigDecimal subtotal;
+    private BigDecimal taxAmount;
+    private BigDecimal discountAmount;
+    private BigDecimal totalAmount;
+    private Integer itemCount;
+    private Integer totalQuantity;
+    private LocalDateTime occurredAt;
+
+    public CartEvent() {}
+
+    // Static factory methods
+    public static CartEvent of(Type type, Cart cart) {
+        CartEvent event = new CartEvent();
+        event.type = type;
+        event.cartId = cart.getId();
+        event.version = cart.getVersion();
+        event.status = cart.getStatus();
+        event.subtotal = cart.getSubtotal();
+        event.taxAmount = cart.getTaxAmount();
+        event.discountAmount = cart.getDiscountAmount();
+        event.totalAmount = cart.getTotalAmount();
+        event.itemCount = cart.getItemCount();
+        event.totalQuantity = cart.getTotalQuantity();
+        event.occurredAt = LocalDateTime.now();
+        return event;
+    }
+
+    public static CartEvent itemChanged(Type type, Cart cart, CartItem item) {
+        CartEvent event = of(type, cart);
+        event.item = CartItemResponse.from(item);
+        event.itemId = item.getId();
+        return event;
+    }
+
+    public static CartEvent itemRemoved(Cart cart, UUID itemId) {
+        CartEvent event = of(Type.ITEM_REMOVED, cart);
+        event.itemId = itemId;
+        return event;
+    }
+
+    public enum Type {
+        ITEM_ADDED,
+        ITEM_UPDATED,
+        ITEM_REMOVED,
+        CART_CLEARED,
+        CART_UPDATED,   // Several items or cart details changed: refetch the cart
+        CART_CONVERTED,
+        CART_DELETED,
+        RESYNC          // Sent by the stream itself after dropped events: refetch the cart
+    }
+}
@@ -1,12 +1,13 @@
 package com.shah_s.bakery_cart_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.shah_s.bakery_cart_service.entity.CartItem;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.Map;
 import java.util.UUID;
 
 @Setter
@@ -41,7 +42,9 @@ public class CartItemResponse {
     private LocalDateTime savedForLaterAt;
     private LocalDateTime removedAt;
     private String addedFrom;
-    private Map<String, Object> metadata;
+    @JsonRawValue
+    @JsonDeserialize(using = RawJsonDeserializer.class)
+    private String metadata; // Stored JSON document, written out without re-encoding
 
     // Constructors
     public CartItemResponse() {}
@@ -77,14 +80,8 @@ public class CartItemResponse {
         response.removedAt = item.getRemovedAt();
         response.addedFrom = item.getAddedFrom();
 
-        // Parse metadata JSON if exists
-        if (item.getMetadata() != null) {
-            try {
-                response.metadata = Map.of("raw", item.getMetadata());
-            } catch (Exception e) {
-                response.metadata = Map.of("error", "Failed to parse metadata");
-            }
-        }
+        // Metadata is stored as jsonb and embedded as is
+        response.metadata = item.getMetadata();
 
         return response;
     }
@@ -0,0 +1,46 @@
+package com.shah_s.bakery_cart_service.dto;
+
+import com.shah_s.bakery_cart_service.exception.CartServiceException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Sparse fieldset of CartResponse (?fields=id,totalAmount,itemCount). Field names are the JSON
+// property names; "id" is always included. ALL stands for the full response.
+public record CartProjection(Set<String> fields) {
+
+    public static final CartProjection ALL = new CartProjection(null);
+
+    private static final Set<String> FIELD_NAMES = Arrays.stream(CartResponse.class.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()))
+            .map(Field::getName)
+            .collect(Collectors.toUnmodifiableSet());
+
+    public static CartProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) return ALL;
+
+        Set<String> requested = new HashSet<>();
+        requested.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) continue;
+            if (!FIELD_NAMES.contains(name)) {
+                throw new CartServiceException("Unknown cart field: " + name);
+            }
+            requested.add(name);
+        }
+        return new CartProjection(Set.copyOf(requested));
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+}
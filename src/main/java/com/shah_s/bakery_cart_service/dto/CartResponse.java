@@ -1,5 +1,7 @@
 package com.shah_s.bakery_cart_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.shah_s.bakery_cart_service.entity.Cart;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,7 +9,6 @@ import lombok.Setter;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -38,6 +39,8 @@ public class CartResponse {
     private Boolean isEmpty;
     private Boolean isExpired;
     private Boolean isGuest;
+    private Boolean isVirtual; // Not stored yet: created on the first added item
+    private Long version; // ETag / If-Match: "<id>-<version>"
     private Boolean hasStockIssues;
     private Boolean hasPriceChanges;
     private LocalDateTime createdAt;
@@ -49,13 +52,21 @@ public class CartResponse {
     private UUID convertedOrderId;
     private String source;
     private String deviceType;
-    private Map<String, Object> metadata;
+    @JsonRawValue
+    @JsonDeserialize(using = RawJsonDeserializer.class)
+    private String metadata; // Stored JSON document, written out without re-encoding
 
     // Constructors
     public CartResponse() {}
 
     // Static factory method
     public static CartResponse from(Cart cart) {
+        return from(cart, CartProjection.ALL);
+    }
+
+    // Response for a sparse fieldset: plain columns are always copied, item lists and derived
+    // fields only when requested (leaving them out also skips loading the items)
+    public static CartResponse from(Cart cart, CartProjection projection) {
         CartResponse response = new CartResponse();
         response.id = cart.getId();
         response.userId = cart.getUserId();
@@ -76,21 +87,32 @@ public class CartResponse {
         response.deliveryAddress = cart.getDeliveryAddress();
 
         // Convert items
-        response.items = cart.getActiveItems().stream()
-                .map(CartItemResponse::from)
-                .collect(Collectors.toList());
+        if (projection.includes("items")) {
+            response.items = cart.getActiveItems().stream()
+                    .map(CartItemResponse::from)
+                    .collect(Collectors.toList());
+        }
 
-        response.savedItems = cart.getItems().stream()
-                .filter(item -> item.getStatus() == com.shah_s.bakery_cart_service.entity.CartItem.CartItemStatus.SAVED_FOR_LATER)
-                .map(CartItemResponse::from)
-                .collect(Collectors.toList());
+        if (projection.includes("savedItems")) {
+            response.savedItems = cart.getSavedItems().stream()
+                    .map(CartItemResponse::from)
+                    .collect(Collectors.toList());
+        }
 
         // Calculate derived fields
-        response.isEmpty = cart.isEmpty();
+        if (projection.includes("isEmpty")) {
+            response.isEmpty = cart.isEmpty();
+        }
         response.isExpired = cart.isExpired();
         response.isGuest = cart.isGuest();
-        response.hasStockIssues = cart.getActiveItems().stream().anyMatch(item -> item.hasStockIssue());
-        response.hasPriceChanges = cart.getActiveItems().stream().anyMatch(item -> item.hasPriceChanged());
+        response.isVirtual = false;
+        response.version = cart.getVersion();
+        if (projection.includes("hasStockIssues")) {
+            response.hasStockIssues = cart.getActiveItems().stream().anyMatch(item -> item.hasStockIssue());
+        }
+        if (projection.includes("hasPriceChanges")) {
+            response.hasPriceChanges = cart.getActiveItems().stream().anyMatch(item -> item.hasPriceChanged());
+        }
 
         // Timestamps
         response.createdAt = cart.getCreatedAt();
@@ -105,13 +127,9 @@ public class CartResponse {
         response.source = cart.getSource();
         response.deviceType = cart.getDeviceType();
 
-        // Parse metadata JSON if exists
-        if (cart.getMetadata() != null) {
-            try {
-                response.metadata = Map.of("raw", cart.getMetadata());
-            } catch (Exception e) {
-                response.metadata = Map.of("error", "Failed to parse metadata");
-            }
+        // Metadata is stored as jsonb and embedded as is
+        if (projection.includes("metadata")) {
+            response.metadata = cart.getMetadata();
         }
 
         return response;
@@ -0,0 +1,61 @@
+package com.shah_s.bakery_cart_service.dto;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.TreeSet;
+import java.util.UUID;
+
+// Serialized CartResponse as stored in the read model; body is the JSON returned to clients as is.
+// version is null for carts that are not stored in the database (Redis guest and virtual carts).
+// Header-only snapshots (version and owner, used for conditional requests) have no body.
+public record CartSnapshot(UUID cartId, Long version, UUID userId, String body) {
+
+    // Strong ETag: cart id and version, or a content hash for carts without a version
+    public String etag() {
+        if (version != null) {
+            return etag(cartId, version);
+        }
+        return "\"" + cartId + "-" + DigestUtils.md5DigestAsHex(body.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    public static String etag(UUID cartId, long version) {
+        return "\"" + cartId + "-" + version + "\"";
+    }
+
+    // ETag of a sparse fieldset (?fields=): the cart's ETag with a hash of the sorted field names
+    // mixed in, so it matches neither the full representation nor another fieldset
+    public String etag(CartProjection projection) {
+        String etag = etag();
+        if (projection.isAll()) {
+            return etag;
+        }
+        String fields = String.join(",", new TreeSet<>(projection.fields()));
+        String fieldsHash = DigestUtils.md5DigestAsHex(fields.getBytes(StandardCharsets.UTF_8)).substring(0, 8);
+        return etag.substring(0, etag.length() - 1) + "-" + fieldsHash + "\"";
+    }
+
+    // If-None-Match comparison (weak): "*" or any listed tag, weak prefixes ignored
+    public static boolean etagMatches(String header, String etag) {
+        return matches(header, etag, false);
+    }
+
+    // If-Match comparison (strong): "*" or any listed strong tag; weak tags never match
+    public static boolean strongEtagMatches(String header, String etag) {
+        return matches(header, etag, true);
+    }
+
+    private static boolean matches(String header, String etag, boolean strong) {
+        if (header == null || etag == null) return false;
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) {
+                if (strong) continue;
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,17 @@
+package com.shah_s.bakery_cart_service.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+
+// Counterpart of @JsonRawValue: reads an embedded JSON value back into its text form
+// (cached CartResponse entries, snapshots read back by clients of this service)
+public class RawJsonDeserializer extends JsonDeserializer<String> {
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        return context.readTree(parser).toString();
+    }
+}
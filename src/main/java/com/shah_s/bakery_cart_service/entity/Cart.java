@@ -2,30 +2,35 @@ package com.shah_s.bakery_cart_service.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcType;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.dialect.PostgreSQLEnumJdbcType;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Getter
 @Entity
 @Setter
-@Table(name = "carts", indexes = {
-    @Index(name = "idx_cart_user", columnList = "user_id"),
-    @Index(name = "idx_cart_session", columnList = "session_id"),
-    @Index(name = "idx_cart_status", columnList = "status"),
-    @Index(name = "idx_cart_updated", columnList = "updated_at"),
-    @Index(name = "idx_cart_expires", columnList = "expires_at"),
-    @Index(name = "idx_cart_user_status", columnList = "user_id, status")
-})
+@Table(name = "carts") // Schema and indexes: db/migration
 public class Cart {
 
+    // Shared with the SQL totals recompute in CartRepository
+    public static final String DEFAULT_TAX_RATE = "0.08";
+    public static final long GUEST_CART_TTL_HOURS = 24;
+    public static final long USER_CART_TTL_DAYS = 30;
+
     // Getters and Setters
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -39,7 +44,8 @@ public class Cart {
     private String sessionId; // For guest cart identification
 
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @JdbcType(PostgreSQLEnumJdbcType.class)
+    @Column(nullable = false, columnDefinition = "cart_status")
     private CartStatus status = CartStatus.ACTIVE;
 
     @Column(name = "customer_name", length = 100)
@@ -93,7 +99,7 @@ public class Cart {
     @Column(name = "delivery_address", columnDefinition = "TEXT")
     private String deliveryAddress;
 
-    @CreationTimestamp
+    // Partition key of the cart and its items; set before the items are persisted (onCreate)
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -116,14 +122,20 @@ public class Cart {
     @Column(name = "converted_order_id")
     private UUID convertedOrderId;
 
+    // Bumped on every write; orders the read snapshots (CartSnapshotStore)
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // Relationships
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     @OrderBy("addedAt ASC")
     private List<CartItem> items = new ArrayList<>();
 
     // Metadata for additional information
-    @Column(name = "metadata", columnDefinition = "TEXT")
-    private String metadata; // JSON string for additional data
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "metadata", columnDefinition = "jsonb")
+    private String metadata; // JSON document, embedded in responses as is
 
     @Column(name = "source", length = 50)
     @Size(max = 50, message = "Source must not exceed 50 characters")
@@ -136,6 +148,14 @@ public class Cart {
     @Column(name = "user_agent", columnDefinition = "TEXT")
     private String userAgent;
 
+    // Active and saved views of items, with the active items by product id. Not persisted or stored
+    // (transient): built on first use after a load and dropped on every item change, i.e. the Cart
+    // item methods (the list itself is only handed out read-only) and status or product changes of
+    // an item (CartItem).
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient ItemIndex itemIndex;
+
     // Constructors
     public Cart() {
         this.lastActivityAt = LocalDateTime.now();
@@ -158,43 +178,68 @@ public class Cart {
         setExpirationTime(); // Update expiration when user is set
     }
 
+    // Read-only: items change through the methods below, which keep the item views current
+    public List<CartItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public void setItems(List<CartItem> items) {
+        this.items = items;
+        itemsChanged();
+    }
+
+    // Runs before the persist cascades to the items, which copy createdAt (CartItem.assignCartCreatedAt)
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
     // Business Logic Methods
     public void addItem(CartItem item) {
         item.setCart(this);
         items.add(item);
+        itemsChanged();
         updateTotals();
         updateActivity();
     }
 
     public void removeItem(CartItem item) {
         items.remove(item);
+        itemsChanged();
         updateTotals();
         updateActivity();
     }
 
     public void clearItems() {
         items.clear();
+        itemsChanged();
         updateTotals();
         updateActivity();
     }
 
-    public void updateTotals() {
-        this.subtotal = items.stream()
-                .filter(item -> item.getStatus() == CartItem.CartItemStatus.ACTIVE)
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Drop the item views; called by CartItem when an item changes status or product
+    public void itemsChanged() {
+        this.itemIndex = null;
+    }
 
-        this.itemCount = (int) items.stream()
-                .filter(item -> item.getStatus() == CartItem.CartItemStatus.ACTIVE)
-                .count();
+    public void updateTotals() {
+        List<CartItem> activeItems = getActiveItems();
+        BigDecimal activeSubtotal = BigDecimal.ZERO;
+        int activeQuantity = 0;
+        for (int i = 0; i < activeItems.size(); i++) {
+            CartItem item = activeItems.get(i);
+            activeSubtotal = activeSubtotal.add(item.getTotalPrice());
+            activeQuantity += item.getQuantity();
+        }
 
-        this.totalQuantity = items.stream()
-                .filter(item -> item.getStatus() == CartItem.CartItemStatus.ACTIVE)
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+        this.subtotal = activeSubtotal;
+        this.itemCount = activeItems.size();
+        this.totalQuantity = activeQuantity;
 
         // Calculate tax (8% default)
-        this.taxAmount = subtotal.multiply(new BigDecimal("0.08"));
+        this.taxAmount = subtotal.multiply(new BigDecimal(DEFAULT_TAX_RATE));
 
         // Calculate total (subtotal + tax - discount)
         this.totalAmount = subtotal.add(taxAmount).subtract(discountAmount);
@@ -216,10 +261,10 @@ public class Cart {
         LocalDateTime now = LocalDateTime.now();
         if (userId != null) {
             // User carts expire after 30 days
-            this.expiresAt = now.plusDays(30);
+            this.expiresAt = now.plusDays(USER_CART_TTL_DAYS);
         } else {
             // Guest carts expire after 24 hours
-            this.expiresAt = now.plusHours(24);
+            this.expiresAt = now.plusHours(GUEST_CART_TTL_HOURS);
         }
     }
 
@@ -228,8 +273,7 @@ public class Cart {
     }
 
     public boolean isEmpty() {
-        return items.isEmpty() || items.stream()
-                .noneMatch(item -> item.getStatus() == CartItem.CartItemStatus.ACTIVE);
+        return items.isEmpty() || getActiveItems().isEmpty();
     }
 
     public boolean isGuest() {
@@ -261,28 +305,64 @@ public class Cart {
         updateActivity();
     }
 
+    // First active item of the product, or null
     public CartItem findItemByProductId(UUID productId) {
-        return items.stream()
-                .filter(item -> item.getProductId().equals(productId) &&
-                               item.getStatus() == CartItem.CartItemStatus.ACTIVE)
-                .findFirst()
-                .orElse(null);
+        return itemIndex().activeByProduct.get(productId);
     }
 
     public boolean hasItem(UUID productId) {
-        return findItemByProductId(productId) != null;
+        return itemIndex().activeByProduct.containsKey(productId);
     }
 
     public int getActiveItemsCount() {
-        return (int) items.stream()
-                .filter(item -> item.getStatus() == CartItem.CartItemStatus.ACTIVE)
-                .count();
+        return getActiveItems().size();
     }
 
+    // Unmodifiable and shared until the next item change: no copy per call
     public List<CartItem> getActiveItems() {
-        return items.stream()
-                .filter(item -> item.getStatus() == CartItem.CartItemStatus.ACTIVE)
-                .toList();
+        return itemIndex().activeItems;
+    }
+
+    public List<CartItem> getSavedItems() {
+        return itemIndex().savedItems;
+    }
+
+    private ItemIndex itemIndex() {
+        ItemIndex index = itemIndex;
+        // Hibernate replaces the list field itself (its collection wrapper on persist, merge and load)
+        if (index == null || index.items != items) {
+            index = new ItemIndex(items);
+            itemIndex = index;
+        }
+        return index;
+    }
+
+    // Item views of one state of the items list
+    private static final class ItemIndex {
+
+        private final List<CartItem> items;
+        private final Map<UUID, CartItem> activeByProduct;
+        private final List<CartItem> activeItems;
+        private final List<CartItem> savedItems;
+
+        private ItemIndex(List<CartItem> items) {
+            this.items = items;
+
+            Map<UUID, CartItem> byProduct = new HashMap<>();
+            List<CartItem> active = new ArrayList<>(items.size());
+            List<CartItem> saved = new ArrayList<>();
+            for (CartItem item : items) {
+                if (item.getStatus() == CartItem.CartItemStatus.ACTIVE) {
+                    active.add(item);
+                    byProduct.putIfAbsent(item.getProductId(), item);
+                } else if (item.getStatus() == CartItem.CartItemStatus.SAVED_FOR_LATER) {
+                    saved.add(item);
+                }
+            }
+            this.activeByProduct = byProduct;
+            this.activeItems = Collections.unmodifiableList(active);
+            this.savedItems = Collections.unmodifiableList(saved);
+        }
     }
 
     // Enum for cart status
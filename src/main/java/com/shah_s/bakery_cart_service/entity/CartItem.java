@@ -4,8 +4,13 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.Hibernate;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcType;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.dialect.PostgreSQLEnumJdbcType;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -14,13 +19,7 @@ import java.util.UUID;
 @Getter
 @Setter
 @Entity
-@Table(name = "cart_items", indexes = {
-    @Index(name = "idx_cart_item_cart", columnList = "cart_id"),
-    @Index(name = "idx_cart_item_product", columnList = "product_id"),
-    @Index(name = "idx_cart_item_status", columnList = "status"),
-    @Index(name = "idx_cart_item_added", columnList = "added_at"),
-    @Index(name = "idx_cart_product_status", columnList = "cart_id, product_id, status")
-})
+@Table(name = "cart_items") // Schema and indexes: db/migration
 public class CartItem {
 
     // Getters and Setters
@@ -33,6 +32,10 @@ public class CartItem {
     @NotNull(message = "Cart is required")
     private Cart cart;
 
+    // Partition key: items live in their cart's month partition (Cart.createdAt)
+    @Column(name = "cart_created_at", nullable = false, updatable = false)
+    private LocalDateTime cartCreatedAt;
+
     @Column(name = "product_id", nullable = false)
     @NotNull(message = "Product ID is required")
     private UUID productId;
@@ -70,7 +73,8 @@ public class CartItem {
     private BigDecimal originalUnitPrice; // For price comparison
 
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @JdbcType(PostgreSQLEnumJdbcType.class)
+    @Column(nullable = false, columnDefinition = "cart_item_status")
     private CartItemStatus status = CartItemStatus.ACTIVE;
 
     @Column(name = "special_instructions", columnDefinition = "TEXT")
@@ -129,8 +133,9 @@ public class CartItem {
     private LocalDateTime removedAt;
 
     // Metadata for additional information
-    @Column(name = "metadata", columnDefinition = "TEXT")
-    private String metadata; // JSON string for additional data
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "metadata", columnDefinition = "jsonb")
+    private String metadata; // JSON document, embedded in responses as is
 
     @Column(name = "added_from", length = 50)
     @Size(max = 50, message = "Added from must not exceed 50 characters")
@@ -151,6 +156,11 @@ public class CartItem {
     }
 
 
+    public void setProductId(UUID productId) {
+        this.productId = productId;
+        cartViewsChanged();
+    }
+
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
         calculateTotalPrice();
@@ -162,6 +172,13 @@ public class CartItem {
         checkPriceChange();
     }
 
+    @PrePersist
+    protected void assignCartCreatedAt() {
+        if (cartCreatedAt == null && cart != null) {
+            cartCreatedAt = cart.getCreatedAt();
+        }
+    }
+
     // Business Logic Methods
     public void calculateTotalPrice() {
         if (quantity != null && unitPrice != null) {
@@ -188,19 +205,27 @@ public class CartItem {
         calculateTotalPrice();
     }
 
+    public void setStatus(CartItemStatus status) {
+        this.status = status;
+        cartViewsChanged();
+    }
+
     public void saveForLater() {
         this.status = CartItemStatus.SAVED_FOR_LATER;
         this.savedForLaterAt = LocalDateTime.now();
+        cartViewsChanged();
     }
 
     public void moveToCart() {
         this.status = CartItemStatus.ACTIVE;
         this.savedForLaterAt = null;
+        cartViewsChanged();
     }
 
     public void remove() {
         this.status = CartItemStatus.REMOVED;
         this.removedAt = LocalDateTime.now();
+        cartViewsChanged();
     }
 
     public boolean isActive() {
@@ -219,6 +244,20 @@ public class CartItem {
         return !isAvailable || (stockQuantity != null && stockQuantity < quantity);
     }
 
+    // Stock reservation refused by product-service (StockReservationService)
+    public void markStockRejected(String message) {
+        this.isAvailable = false;
+        this.availabilityMessage = message;
+    }
+
+    // A new quantity is reserved again, so an earlier refusal no longer applies
+    public void clearStockRejection() {
+        if (Boolean.FALSE.equals(isAvailable) && availabilityMessage != null) {
+            this.isAvailable = true;
+            this.availabilityMessage = null;
+        }
+    }
+
     public boolean hasPriceChanged() {
         return priceChanged != null && priceChanged;
     }
@@ -231,6 +270,14 @@ public class CartItem {
         this.lastValidatedAt = LocalDateTime.now();
     }
 
+    // The cart's active/saved item views depend on the status and product. An uninitialized cart
+    // proxy has no views yet, so it is left alone rather than loaded.
+    private void cartViewsChanged() {
+        if (cart != null && Hibernate.isInitialized(cart)) {
+            cart.itemsChanged();
+        }
+    }
+
     // Enum for cart item status
     public enum CartItemStatus {
         ACTIVE,           // Item is active in cart
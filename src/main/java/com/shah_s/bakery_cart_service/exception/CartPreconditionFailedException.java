@@ -0,0 +1,17 @@
+package com.shah_s.bakery_cart_service.exception;
+
+// If-Match did not hold: the cart changed since the client read it (412 Precondition Failed).
+// currentEtag is the cart's ETag at the check, or null if it could not be determined.
+public class CartPreconditionFailedException extends CartServiceException {
+
+    private final String currentEtag;
+
+    public CartPreconditionFailedException(String message, String currentEtag) {
+        super(message);
+        this.currentEtag = currentEtag;
+    }
+
+    public String getCurrentEtag() {
+        return currentEtag;
+    }
+}
@@ -3,8 +3,10 @@ package com.shah_s.bakery_cart_service.exception;
 import feign.FeignException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -34,6 +36,41 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(error);
     }
 
+    @ExceptionHandler(CartPreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailed(CartPreconditionFailedException ex, WebRequest request) {
+        logger.debug("Precondition failed: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            "PRECONDITION_FAILED",
+            ex.getMessage(),
+            LocalDateTime.now(),
+            request.getDescription(false)
+        );
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.PRECONDITION_FAILED);
+        if (ex.getCurrentEtag() != null) {
+            response.header(HttpHeaders.ETAG, ex.getCurrentEtag());
+        }
+        return response.body(error);
+    }
+
+    // A concurrent write got to the cart first (@Version check at flush or commit). No precondition
+    // was evaluated (If-Match failures are CartPreconditionFailedException), so this is a conflict.
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex,
+                                                                        WebRequest request) {
+        logger.debug("Optimistic lock failure: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            "CONFLICT",
+            "Cart was changed concurrently, please retry",
+            LocalDateTime.now(),
+            request.getDescription(false)
+        );
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(FeignException.class)
     public ResponseEntity<ErrorResponse> handleFeignException(FeignException ex, WebRequest request) {
         logger.error("External service error: {}", ex.getMessage());
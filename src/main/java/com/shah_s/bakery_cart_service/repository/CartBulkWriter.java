@@ -0,0 +1,81 @@
+package com.shah_s.bakery_cart_service.repository;
+
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Inserts carts and items that already carry their ids (built outside Postgres, e.g. Redis guest carts).
+// JPA would treat an entity with a preassigned generated id as detached, so these go through plain JDBC.
+// Inserts are idempotent: a retried promotion leaves the existing rows alone.
+@Repository
+public class CartBulkWriter {
+
+    private static final String INSERT_CART = "INSERT INTO carts (id, user_id, session_id, status, customer_name, " +
+            "customer_email, subtotal, tax_amount, discount_amount, total_amount, item_count, total_quantity, " +
+            "currency_code, discount_code, special_instructions, delivery_type, delivery_address, created_at, " +
+            "updated_at, expires_at, last_activity_at, abandoned_at, converted_at, converted_order_id, metadata, " +
+            "source, device_type, user_agent) " +
+            "VALUES (?, ?, ?, ?::cart_status, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_ITEM = "INSERT INTO cart_items (id, cart_id, cart_created_at, product_id, product_sku, " +
+            "product_name, product_category, quantity, unit_price, total_price, original_unit_price, status, " +
+            "special_instructions, product_description, product_image_url, preparation_time_minutes, currency_code, " +
+            "is_available, stock_quantity, availability_message, price_changed, price_change_amount, added_at, " +
+            "updated_at, last_validated_at, saved_for_later_at, removed_at, metadata, added_from) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::cart_item_status, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?) " +
+            "ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartBulkWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Insert a cart and all of its non-removed items (one statement plus one batch)
+    public void insertCartWithItems(Cart cart) {
+        LocalDateTime now = LocalDateTime.now();
+        // The items go to the partition of the cart's created_at, so both use the same value
+        LocalDateTime createdAt = orNow(cart.getCreatedAt(), now);
+        jdbcTemplate.update(INSERT_CART,
+                cart.getId(), cart.getUserId(), cart.getSessionId(), cart.getStatus().name(),
+                cart.getCustomerName(), cart.getCustomerEmail(),
+                cart.getSubtotal(), cart.getTaxAmount(), cart.getDiscountAmount(), cart.getTotalAmount(),
+                cart.getItemCount(), cart.getTotalQuantity(), cart.getCurrencyCode(), cart.getDiscountCode(),
+                cart.getSpecialInstructions(), cart.getDeliveryType(), cart.getDeliveryAddress(),
+                createdAt, orNow(cart.getUpdatedAt(), now), cart.getExpiresAt(),
+                cart.getLastActivityAt(), cart.getAbandonedAt(), cart.getConvertedAt(), cart.getConvertedOrderId(),
+                cart.getMetadata(), cart.getSource(), cart.getDeviceType(), cart.getUserAgent());
+
+        List<Object[]> itemRows = cart.getItems().stream()
+                .filter(item -> !item.isRemoved())
+                .map(item -> itemRow(item, createdAt, now))
+                .toList();
+        if (!itemRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ITEM, itemRows);
+        }
+    }
+
+    // Private helper methods
+    private Object[] itemRow(CartItem item, LocalDateTime cartCreatedAt, LocalDateTime now) {
+        return new Object[] {
+                item.getId(), item.getCart().getId(), cartCreatedAt, item.getProductId(), item.getProductSku(),
+                item.getProductName(), item.getProductCategory(), item.getQuantity(), item.getUnitPrice(),
+                item.getTotalPrice(), item.getOriginalUnitPrice(), item.getStatus().name(),
+                item.getSpecialInstructions(), item.getProductDescription(), item.getProductImageUrl(),
+                item.getPreparationTimeMinutes(), item.getCurrencyCode(), item.getIsAvailable(),
+                item.getStockQuantity(), item.getAvailabilityMessage(), item.getPriceChanged(),
+                item.getPriceChangeAmount(), orNow(item.getAddedAt(), now), orNow(item.getUpdatedAt(), now),
+                item.getLastValidatedAt(), item.getSavedForLaterAt(), item.getRemovedAt(), item.getMetadata(),
+                item.getAddedFrom()
+        };
+    }
+
+    private LocalDateTime orNow(LocalDateTime value, LocalDateTime now) {
+        return value != null ? value : now;
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -15,6 +16,9 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+// cart_items is partitioned by cart_created_at (V2). Statements for a cart whose created_at the caller
+// already has take it as cartCreatedAt and touch one partition; lookups by item or cart id alone
+// (findById, findCartIdById, findActiveItemsByCartId, ...) are deliberately unpruned entry points.
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
 
@@ -33,8 +37,20 @@ public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
     Optional<CartItem> findByCartIdAndProductIdAndStatus(UUID cartId, UUID productId, CartItem.CartItemStatus status);
 
     // Find active item by cart and product
-    @Query("SELECT ci FROM CartItem ci WHERE ci.cart.id = :cartId AND ci.productId = :productId AND ci.status = 'ACTIVE'")
-    Optional<CartItem> findActiveItemByCartAndProduct(@Param("cartId") UUID cartId, @Param("productId") UUID productId);
+    @Query("SELECT ci FROM CartItem ci WHERE ci.cart.id = :cartId AND ci.cartCreatedAt = :cartCreatedAt " +
+           "AND ci.productId = :productId AND ci.status = 'ACTIVE'")
+    Optional<CartItem> findActiveItemByCartAndProduct(@Param("cartId") UUID cartId,
+                                                      @Param("cartCreatedAt") LocalDateTime cartCreatedAt,
+                                                      @Param("productId") UUID productId);
+
+    // Active items of a cart within its partition
+    @Query("SELECT ci FROM CartItem ci WHERE ci.cart.id = :cartId AND ci.cartCreatedAt = :cartCreatedAt " +
+           "AND ci.status = 'ACTIVE' ORDER BY ci.addedAt ASC")
+    List<CartItem> findActiveItemsByCart(@Param("cartId") UUID cartId, @Param("cartCreatedAt") LocalDateTime cartCreatedAt);
+
+    // Cart of an item, without loading either (lane selection of item-level mutations)
+    @Query("SELECT ci.cart.id FROM CartItem ci WHERE ci.id = :itemId")
+    Optional<UUID> findCartIdById(@Param("itemId") UUID itemId);
 
     // Find items by product ID
     List<CartItem> findByProductIdOrderByAddedAtDesc(UUID productId);
@@ -186,26 +202,115 @@ public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
     List<CartItem> searchItemsByProductName(@Param("searchTerm") String searchTerm);
 
     // Bulk operations
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CartItem ci SET ci.status = 'REMOVED', ci.removedAt = :currentTime, ci.updatedAt = :currentTime " +
+           "WHERE ci.cart.id = :cartId AND ci.cartCreatedAt = :cartCreatedAt AND ci.status <> 'REMOVED'")
+    int removeAllItemsFromCart(@Param("cartId") UUID cartId, @Param("cartCreatedAt") LocalDateTime cartCreatedAt,
+                               @Param("currentTime") LocalDateTime currentTime);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CartItem ci SET ci.status = 'SAVED_FOR_LATER', ci.savedForLaterAt = :currentTime, ci.updatedAt = :currentTime " +
+           "WHERE ci.cart.id = :cartId AND ci.cartCreatedAt = :cartCreatedAt AND ci.status = 'ACTIVE'")
+    int saveAllItemsForLater(@Param("cartId") UUID cartId, @Param("cartCreatedAt") LocalDateTime cartCreatedAt,
+                             @Param("currentTime") LocalDateTime currentTime);
+
+    // Move-all, step 1: add saved quantities onto products that are already active (capped per item)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE cart_items a SET " +
+                   "quantity = LEAST(a.quantity + x.quantity, :maxQuantity), " +
+                   "total_price = a.unit_price * LEAST(a.quantity + x.quantity, :maxQuantity), " +
+                   "updated_at = :currentTime " +
+                   "FROM (SELECT product_id, SUM(quantity) AS quantity FROM cart_items " +
+                   "WHERE cart_id = :cartId AND cart_created_at = :cartCreatedAt AND status = 'SAVED_FOR_LATER' " +
+                   "GROUP BY product_id) x " +
+                   "WHERE a.cart_id = :cartId AND a.cart_created_at = :cartCreatedAt AND a.status = 'ACTIVE' " +
+                   "AND a.product_id = x.product_id", nativeQuery = true)
+    int foldSavedItemsIntoActive(@Param("cartId") UUID cartId,
+                                 @Param("cartCreatedAt") LocalDateTime cartCreatedAt,
+                                 @Param("maxQuantity") Integer maxQuantity,
+                                 @Param("currentTime") LocalDateTime currentTime);
+
+    // Move-all, step 2: saved lines folded in step 1 are removed
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE cart_items s SET status = 'REMOVED', removed_at = :currentTime, updated_at = :currentTime " +
+                   "WHERE s.cart_id = :cartId AND s.cart_created_at = :cartCreatedAt AND s.status = 'SAVED_FOR_LATER' " +
+                   "AND EXISTS (SELECT 1 FROM cart_items a WHERE a.cart_id = s.cart_id " +
+                   "AND a.cart_created_at = s.cart_created_at " +
+                   "AND a.product_id = s.product_id AND a.status = 'ACTIVE')", nativeQuery = true)
+    int removeSavedItemsAlreadyActive(@Param("cartId") UUID cartId, @Param("cartCreatedAt") LocalDateTime cartCreatedAt,
+                                      @Param("currentTime") LocalDateTime currentTime);
+
+    // Move-all, step 3: move the latest saved line per product back to the cart
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE cart_items SET status = 'ACTIVE', saved_for_later_at = NULL " +
+                   "WHERE cart_created_at = :cartCreatedAt AND id IN (SELECT DISTINCT ON (product_id) id FROM cart_items " +
+                   "WHERE cart_id = :cartId AND cart_created_at = :cartCreatedAt AND status = 'SAVED_FOR_LATER' " +
+                   "ORDER BY product_id, saved_for_later_at DESC)", nativeQuery = true)
+    int moveAllItemsToCart(@Param("cartId") UUID cartId, @Param("cartCreatedAt") LocalDateTime cartCreatedAt);
+
+    // Merge: copy source active items into the target; products already active there get their
+    // quantities added (capped per item). Conflicts resolve on uq_cart_item_active_product.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO cart_items (id, cart_id, cart_created_at, product_id, product_sku, product_name, product_category, " +
+                   "quantity, unit_price, total_price, original_unit_price, status, special_instructions, " +
+                   "product_description, product_image_url, preparation_time_minutes, currency_code, " +
+                   "is_available, price_changed, price_change_amount, added_at, updated_at, added_from) " +
+                   "SELECT gen_random_uuid(), t.id, t.created_at, s.product_id, s.product_sku, s.product_name, s.product_category, " +
+                   "LEAST(s.quantity, :maxQuantity), s.unit_price, s.unit_price * LEAST(s.quantity, :maxQuantity), s.unit_price, " +
+                   "CAST('ACTIVE' AS cart_item_status), s.special_instructions, s.product_description, s.product_image_url, " +
+                   "s.preparation_time_minutes, t.currency_code, true, false, 0, :currentTime, :currentTime, s.added_from " +
+                   "FROM cart_items s JOIN carts t ON t.id = :targetCartId AND t.created_at = :targetCreatedAt " +
+                   "WHERE s.cart_id = :sourceCartId AND s.cart_created_at = :sourceCreatedAt AND s.status = 'ACTIVE' " +
+                   "ON CONFLICT (cart_id, cart_created_at, product_id) WHERE status = 'ACTIVE' DO UPDATE SET " +
+                   "quantity = LEAST(cart_items.quantity + EXCLUDED.quantity, :maxQuantity), " +
+                   "total_price = cart_items.unit_price * LEAST(cart_items.quantity + EXCLUDED.quantity, :maxQuantity), " +
+                   "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int upsertItemsFromCart(@Param("sourceCartId") UUID sourceCartId,
+                            @Param("sourceCreatedAt") LocalDateTime sourceCreatedAt,
+                            @Param("targetCartId") UUID targetCartId,
+                            @Param("targetCreatedAt") LocalDateTime targetCreatedAt,
+                            @Param("maxQuantity") Integer maxQuantity,
+                            @Param("currentTime") LocalDateTime currentTime);
+
+    // Merge without combining duplicates: products already active in the target are skipped
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO cart_items (id, cart_id, cart_created_at, product_id, product_sku, product_name, product_category, " +
+                   "quantity, unit_price, total_price, original_unit_price, status, special_instructions, " +
+                   "product_description, product_image_url, preparation_time_minutes, currency_code, " +
+                   "is_available, price_changed, price_change_amount, added_at, updated_at, added_from) " +
+                   "SELECT gen_random_uuid(), t.id, t.created_at, s.product_id, s.product_sku, s.product_name, s.product_category, " +
+                   "LEAST(s.quantity, :maxQuantity), s.unit_price, s.unit_price * LEAST(s.quantity, :maxQuantity), s.unit_price, " +
+                   "CAST('ACTIVE' AS cart_item_status), s.special_instructions, s.product_description, s.product_image_url, " +
+                   "s.preparation_time_minutes, t.currency_code, true, false, 0, :currentTime, :currentTime, s.added_from " +
+                   "FROM cart_items s JOIN carts t ON t.id = :targetCartId AND t.created_at = :targetCreatedAt " +
+                   "WHERE s.cart_id = :sourceCartId AND s.cart_created_at = :sourceCreatedAt AND s.status = 'ACTIVE' " +
+                   "ON CONFLICT (cart_id, cart_created_at, product_id) WHERE status = 'ACTIVE' DO NOTHING", nativeQuery = true)
+    int copyMissingItems(@Param("sourceCartId") UUID sourceCartId,
+                         @Param("sourceCreatedAt") LocalDateTime sourceCreatedAt,
+                         @Param("targetCartId") UUID targetCartId,
+                         @Param("targetCreatedAt") LocalDateTime targetCreatedAt,
+                         @Param("maxQuantity") Integer maxQuantity,
+                         @Param("currentTime") LocalDateTime currentTime);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId AND ci.cartCreatedAt = :cartCreatedAt")
+    int deleteAllItemsByCartId(@Param("cartId") UUID cartId, @Param("cartCreatedAt") LocalDateTime cartCreatedAt);
+
+    // Flag items whose stock reserve was refused and bump their carts' versions, in one statement
+    @Transactional
     @Modifying
-    @Query("UPDATE CartItem ci SET ci.status = 'REMOVED', ci.removedAt = :currentTime WHERE ci.cart.id = :cartId")
-    int removeAllItemsFromCart(@Param("cartId") UUID cartId, @Param("currentTime") LocalDateTime currentTime);
-
-    @Modifying
-    @Query("UPDATE CartItem ci SET ci.status = 'SAVED_FOR_LATER', ci.savedForLaterAt = :currentTime WHERE ci.cart.id = :cartId AND ci.status = 'ACTIVE'")
-    int saveAllItemsForLater(@Param("cartId") UUID cartId, @Param("currentTime") LocalDateTime currentTime);
-
-    @Modifying
-    @Query("UPDATE CartItem ci SET ci.status = 'ACTIVE', ci.savedForLaterAt = NULL WHERE ci.cart.id = :cartId AND ci.status = 'SAVED_FOR_LATER'")
-    int moveAllItemsToCart(@Param("cartId") UUID cartId);
+    @Query(value = "WITH flagged AS (UPDATE cart_items SET is_available = false, " +
+                   "availability_message = :message, updated_at = :currentTime " +
+                   "WHERE id IN (:itemIds) RETURNING cart_id) " +
+                   "UPDATE carts SET version = version + 1, updated_at = :currentTime " +
+                   "WHERE id IN (SELECT cart_id FROM flagged)", nativeQuery = true)
+    int markStockRejected(@Param("itemIds") List<UUID> itemIds, @Param("message") String message,
+                          @Param("currentTime") LocalDateTime currentTime);
 
     @Modifying
     @Query("UPDATE CartItem ci SET ci.lastValidatedAt = :currentTime WHERE ci.cart.id = :cartId")
     int updateValidationTimestamp(@Param("cartId") UUID cartId, @Param("currentTime") LocalDateTime currentTime);
 
-    @Modifying
-    @Query("DELETE FROM CartItem ci WHERE ci.status = 'REMOVED' AND ci.removedAt < :cutoffTime")
-    int cleanupRemovedItems(@Param("cutoffTime") LocalDateTime cutoffTime);
-
     // Check if item exists in cart
     boolean existsByCartIdAndProductIdAndStatus(UUID cartId, UUID productId, CartItem.CartItemStatus status);
 }
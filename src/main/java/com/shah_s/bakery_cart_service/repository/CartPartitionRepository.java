@@ -0,0 +1,127 @@
+package com.shah_s.bakery_cart_service.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Monthly partitions of carts and cart_items by cart creation month (see V2__partition_carts_by_month.sql).
+// A month is retired by dropping both partitions, which is metadata-only, instead of deleting row by row.
+@Repository
+public class CartPartitionRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartPartitionRepository.class);
+
+    private static final String CARTS = "carts";
+    private static final String CART_ITEMS = "cart_items";
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartPartitionRepository(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Create the cart and item partitions for each month in [from, to] that does not exist yet
+    public int createMonthlyPartitions(YearMonth from, YearMonth to) {
+        int created = 0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            if (partitionExists(partitionName(CARTS, month)) && partitionExists(partitionName(CART_ITEMS, month))) {
+                continue;
+            }
+
+            try {
+                // Attaching takes a lock on the parents; give up quickly instead of queueing behind live traffic
+                String range = " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+                YearMonth partitionMonth = month;
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(CARTS, partitionMonth) +
+                            " PARTITION OF " + CARTS + range);
+                    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(CART_ITEMS, partitionMonth) +
+                            " PARTITION OF " + CART_ITEMS + range);
+                });
+                created++;
+            } catch (Exception e) {
+                // e.g. rows for that month already sit in the default partition
+                logger.warn("Could not create partitions for {}: {}", month, e.getMessage());
+            }
+        }
+        return created;
+    }
+
+    // Months with a cart partition that ended before the cutoff month
+    public List<YearMonth> findMonthsBefore(YearMonth cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = ? ORDER BY c.relname", String.class, CARTS);
+
+        List<YearMonth> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            YearMonth month = partitionMonth(partition);
+            if (month != null && month.isBefore(cutoff)) {
+                expired.add(month);
+            }
+        }
+        return expired;
+    }
+
+    // Drop a month of carts together with their items. Months that still hold live (ACTIVE/SAVED)
+    // carts are kept and null is returned; otherwise the ids of the dropped carts.
+    public List<UUID> dropMonth(YearMonth month) {
+        String carts = partitionName(CARTS, month);
+        String items = partitionName(CART_ITEMS, month);
+
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+            jdbcTemplate.execute("LOCK TABLE " + items + ", " + carts + " IN ACCESS EXCLUSIVE MODE");
+
+            Boolean live = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + carts + " WHERE status IN ('ACTIVE', 'SAVED'))", Boolean.class);
+            if (Boolean.TRUE.equals(live)) {
+                return null;
+            }
+
+            List<UUID> cartIds = jdbcTemplate.queryForList("SELECT id FROM " + carts, UUID.class);
+            // Items first: the cart partition can only leave the parent once nothing references it
+            jdbcTemplate.execute("DROP TABLE " + items);
+            jdbcTemplate.execute("ALTER TABLE " + CARTS + " DETACH PARTITION " + carts);
+            jdbcTemplate.execute("DROP TABLE " + carts);
+            return cartIds;
+        });
+    }
+
+    // Private helper methods
+    private boolean partitionExists(String partition) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private String partitionName(String parent, YearMonth month) {
+        return parent + "_p" + month.format(SUFFIX);
+    }
+
+    // Parse the month from "carts_pYYYYMM"; null for the default partition or foreign names
+    private YearMonth partitionMonth(String partition) {
+        String prefix = CARTS + "_p";
+        if (!partition.startsWith(prefix)) return null;
+        try {
+            return YearMonth.parse(partition.substring(prefix.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -11,10 +11,15 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+// carts is partitioned by created_at (V2). Lookups by id alone (findById, findVersionById,
+// lockVersionById, findOwnerById, ...) are deliberately unpruned: they are the entry points that only
+// have the id and probe the id index of every partition. Once a cart's created_at is known, the
+// follow-up statements take it and touch a single partition.
 @Repository
 public interface CartRepository extends JpaRepository<Cart, UUID> {
 
@@ -96,6 +101,14 @@ public interface CartRepository extends JpaRepository<Cart, UUID> {
     // Find carts by source
     List<Cart> findBySourceOrderByCreatedAtDesc(String source);
 
+    // Find recently active carts, most recent first (cache warm-up)
+    @Query("SELECT c.id FROM Cart c WHERE c.status = 'ACTIVE' AND c.lastActivityAt >= :since ORDER BY c.lastActivityAt DESC")
+    List<UUID> findRecentlyActiveCartIds(@Param("since") LocalDateTime since, Pageable pageable);
+
+    // Find carts with their items in one query
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.items WHERE c.id IN :cartIds")
+    List<Cart> findAllWithItemsByIdIn(@Param("cartIds") Collection<UUID> cartIds);
+
     // Count carts by status
     long countByStatus(Cart.CartStatus status);
 
@@ -217,25 +230,76 @@ public interface CartRepository extends JpaRepository<Cart, UUID> {
     List<Cart> searchCartsByCustomerInfo(@Param("searchTerm") String searchTerm);
 
     // Bulk operations
-    @Modifying
-    @Query("UPDATE Cart c SET c.status = 'EXPIRED' WHERE c.expiresAt < :currentTime AND c.status IN ('ACTIVE', 'SAVED')")
-    int markExpiredCarts(@Param("currentTime") LocalDateTime currentTime);
 
-    @Modifying
-    @Query("UPDATE Cart c SET c.status = 'ABANDONED', c.abandonedAt = :currentTime WHERE c.status = 'ACTIVE' AND c.lastActivityAt < :cutoffTime")
-    int markAbandonedCarts(@Param("currentTime") LocalDateTime currentTime, @Param("cutoffTime") LocalDateTime cutoffTime);
+    // Expire / abandon carts in one statement each, returning the ids of the closed carts (their
+    // stock holds are released)
+    @Query(value = "UPDATE carts SET status = 'EXPIRED', updated_at = :currentTime, version = version + 1 " +
+                   "WHERE expires_at < :currentTime AND status IN ('ACTIVE', 'SAVED') RETURNING id", nativeQuery = true)
+    List<UUID> markExpiredCarts(@Param("currentTime") LocalDateTime currentTime);
 
-    @Modifying
-    @Query("DELETE FROM Cart c WHERE c.status IN ('EXPIRED', 'ABANDONED') AND c.updatedAt < :cutoffTime")
-    int cleanupOldCarts(@Param("cutoffTime") LocalDateTime cutoffTime);
+    @Query(value = "UPDATE carts SET status = 'ABANDONED', abandoned_at = :currentTime, updated_at = :currentTime, " +
+                   "version = version + 1 WHERE status = 'ACTIVE' AND last_activity_at < :cutoffTime RETURNING id",
+           nativeQuery = true)
+    List<UUID> markAbandonedCarts(@Param("currentTime") LocalDateTime currentTime, @Param("cutoffTime") LocalDateTime cutoffTime);
 
     @Modifying
     @Query("DELETE FROM Cart c WHERE c.itemCount = 0 AND c.updatedAt < :cutoffTime")
     int cleanupEmptyCarts(@Param("cutoffTime") LocalDateTime cutoffTime);
 
+    // Partition key of a cart, for the pruned statements that follow
+    @Query("SELECT c.createdAt FROM Cart c WHERE c.id = :cartId")
+    Optional<LocalDateTime> findCreatedAtById(@Param("cartId") UUID cartId);
+
+    // Pruned to the cart's partition
+    Optional<Cart> findByIdAndCreatedAt(UUID id, LocalDateTime createdAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Cart c WHERE c.id = :cartId AND c.createdAt = :createdAt")
+    int deleteCartById(@Param("cartId") UUID cartId, @Param("createdAt") LocalDateTime createdAt);
+
+    // Recompute cart totals from its active items in one statement (mirrors Cart.updateTotals/updateActivity)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE carts c SET " +
+                   "subtotal = t.subtotal, " +
+                   "item_count = t.item_count, " +
+                   "total_quantity = t.total_quantity, " +
+                   "tax_amount = t.subtotal * " + Cart.DEFAULT_TAX_RATE + ", " +
+                   "total_amount = GREATEST(t.subtotal + t.subtotal * " + Cart.DEFAULT_TAX_RATE + " - COALESCE(c.discount_amount, 0), 0), " +
+                   "last_activity_at = :currentTime, " +
+                   "updated_at = :currentTime, " +
+                   "version = c.version + 1, " +
+                   "expires_at = CASE WHEN c.user_id IS NULL THEN :guestExpiresAt ELSE :userExpiresAt END " +
+                   "FROM (SELECT COALESCE(SUM(ci.total_price), 0) AS subtotal, " +
+                   "COUNT(ci.id) AS item_count, " +
+                   "COALESCE(SUM(ci.quantity), 0) AS total_quantity " +
+                   "FROM cart_items ci WHERE ci.cart_id = :cartId AND ci.cart_created_at = :createdAt " +
+                   "AND ci.status = 'ACTIVE') t " +
+                   "WHERE c.id = :cartId AND c.created_at = :createdAt", nativeQuery = true)
+    int recalculateTotals(@Param("cartId") UUID cartId,
+                          @Param("createdAt") LocalDateTime createdAt,
+                          @Param("currentTime") LocalDateTime currentTime,
+                          @Param("guestExpiresAt") LocalDateTime guestExpiresAt,
+                          @Param("userExpiresAt") LocalDateTime userExpiresAt);
+
+    // Owner of a cart without loading it (access checks)
+    Optional<CartOwner> findOwnerById(UUID cartId);
+
+    // Current version of a cart
+    @Query("SELECT c.version FROM Cart c WHERE c.id = :cartId")
+    Optional<Long> findVersionById(@Param("cartId") UUID cartId);
+
+    // Current version of a cart, locking its row until the transaction ends (If-Match checks: no
+    // other writer can change the cart between the comparison and the write)
+    @Query(value = "SELECT version FROM carts WHERE id = :cartId FOR NO KEY UPDATE", nativeQuery = true)
+    Optional<Long> lockVersionById(@Param("cartId") UUID cartId);
+
     // Check if user has active cart
     boolean existsByUserIdAndStatus(UUID userId, Cart.CartStatus status);
 
     // Check if session has active cart
     boolean existsBySessionIdAndStatus(String sessionId, Cart.CartStatus status);
+
+    interface CartOwner {
+        UUID getUserId();
+    }
 }
@@ -0,0 +1,165 @@
+package com.shah_s.bakery_cart_service.repository;
+
+import com.shah_s.bakery_cart_service.dto.CartSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Read model: the serialized CartResponse of each stored cart, keyed by cart id and tagged with
+// the cart version it was built from. GET requests return the body without touching the database.
+//
+// cart-snapshot:<cartId>       hash: "version", "userId", "body"; or only "tombstone" (see invalidate)
+// cart-snapshot:user:<userId>  id of the user's active cart, for GET /api/carts/user/{userId}
+@Repository
+public class CartSnapshotStore {
+
+    private static final String KEY_PREFIX = "cart-snapshot:";
+    private static final String USER_KEY_PREFIX = "cart-snapshot:user:";
+    private static final int DELETE_BATCH = 500;
+    private static final long DELETED_VERSION = Long.MAX_VALUE;
+
+    // Compare-and-set on the version: an older snapshot never replaces a newer one, nor a snapshot
+    // older than a tombstone. The user pointer follows active carts and is dropped when its cart
+    // stops being active.
+    private static final RedisScript<Long> PUT_IF_NEWER = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], 'version') " +
+            "if current and tonumber(current) >= tonumber(ARGV[1]) then return 0 end " +
+            "local tombstone = redis.call('HGET', KEYS[1], 'tombstone') " +
+            "if tombstone and tonumber(tombstone) > tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('HDEL', KEYS[1], 'tombstone') " +
+            "redis.call('HSET', KEYS[1], 'version', ARGV[1], 'userId', ARGV[2], 'body', ARGV[3]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[4]) " +
+            "if ARGV[5] == '1' then " +
+            "  redis.call('SET', KEYS[2], ARGV[6], 'PX', ARGV[4]) " +
+            "elseif ARGV[2] ~= '' and redis.call('GET', KEYS[2]) == ARGV[6] then " +
+            "  redis.call('DEL', KEYS[2]) " +
+            "end " +
+            "return 1", Long.class);
+
+    // Replace a snapshot older than ARGV[1] with a tombstone of that version; a snapshot that is
+    // already at least as new (rebuilt by a reader after the change) is kept
+    private static final RedisScript<Long> TOMBSTONE = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], 'version') " +
+            "if current and tonumber(current) >= tonumber(ARGV[1]) then return 0 end " +
+            "local tombstone = redis.call('HGET', KEYS[1], 'tombstone') " +
+            "if tombstone and tonumber(tombstone) >= tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], 'tombstone', ARGV[1]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${cart.snapshot.ttl-minutes:60}")
+    private Integer ttlMinutes;
+
+    public CartSnapshotStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public CartSnapshot get(UUID cartId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(key(cartId));
+        Object body = fields.get("body");
+        if (body == null) return null;
+
+        String userId = (String) fields.get("userId");
+        return new CartSnapshot(cartId, Long.valueOf((String) fields.get("version")), parseUserId(userId), (String) body);
+    }
+
+    // Version and owner only, for conditional requests that may not need the body at all
+    public CartSnapshot getHeader(UUID cartId) {
+        List<Object> fields = redisTemplate.opsForHash().multiGet(key(cartId), List.of("version", "userId"));
+        if (fields == null || fields.get(0) == null) return null;
+
+        return new CartSnapshot(cartId, Long.valueOf((String) fields.get(0)), parseUserId((String) fields.get(1)), null);
+    }
+
+    public UUID findCartIdByUser(UUID userId) {
+        String cartId = redisTemplate.opsForValue().get(USER_KEY_PREFIX + userId);
+        return cartId != null ? UUID.fromString(cartId) : null;
+    }
+
+    // Store a snapshot unless a newer version is already there; returns false if it was stale.
+    // activeUserCart points the user's key at this cart; otherwise a pointer to it is removed.
+    public boolean put(CartSnapshot snapshot, boolean activeUserCart) {
+        String key = key(snapshot.cartId());
+        String userKey = snapshot.userId() != null ? USER_KEY_PREFIX + snapshot.userId() : key;
+        Long written = redisTemplate.execute(PUT_IF_NEWER, List.of(key, userKey),
+                String.valueOf(snapshot.version()),
+                snapshot.userId() != null ? snapshot.userId().toString() : "",
+                snapshot.body(),
+                String.valueOf(Duration.ofMinutes(ttlMinutes).toMillis()),
+                activeUserCart && snapshot.userId() != null ? "1" : "0",
+                snapshot.cartId().toString());
+        return written != null && written == 1L;
+    }
+
+    // Drop the snapshot of a cart written at the given version without building the new one. The
+    // tombstone left behind keeps a reader that loaded an older version before the write from
+    // putting its snapshot back afterwards; the next read at this version or later rebuilds it.
+    public void invalidate(UUID cartId, long version) {
+        redisTemplate.execute(TOMBSTONE, List.of(key(cartId)), String.valueOf(version),
+                String.valueOf(Duration.ofMinutes(ttlMinutes).toMillis()));
+    }
+
+    // Drop the snapshot of a deleted cart; no snapshot of it is accepted until the tombstone expires
+    public void invalidateDeleted(UUID cartId) {
+        invalidate(cartId, DELETED_VERSION);
+    }
+
+    // Drop the snapshots of the given carts (e.g. carts whose partition was dropped)
+    public int evict(Collection<UUID> cartIds) {
+        int deleted = 0;
+        List<String> batch = new ArrayList<>(DELETE_BATCH);
+        for (UUID cartId : cartIds) {
+            batch.add(key(cartId));
+            if (batch.size() == DELETE_BATCH) {
+                deleted += deleteBatch(batch);
+            }
+        }
+        return deleted + deleteBatch(batch);
+    }
+
+    // Drop every snapshot (after maintenance bulk updates); SCAN keeps Redis responsive
+    public int evictAll() {
+        int deleted = 0;
+        List<String> batch = new ArrayList<>(DELETE_BATCH);
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(DELETE_BATCH).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == DELETE_BATCH) {
+                    deleted += deleteBatch(batch);
+                }
+            }
+        }
+        return deleted + deleteBatch(batch);
+    }
+
+    // Private helper methods
+    private String key(UUID cartId) {
+        return KEY_PREFIX + cartId;
+    }
+
+    private UUID parseUserId(String userId) {
+        return userId == null || userId.isEmpty() ? null : UUID.fromString(userId);
+    }
+
+    private int deleteBatch(List<String> keys) {
+        if (keys.isEmpty()) return 0;
+        Long deleted = redisTemplate.delete(keys);
+        keys.clear();
+        return deleted != null ? deleted.intValue() : 0;
+    }
+}
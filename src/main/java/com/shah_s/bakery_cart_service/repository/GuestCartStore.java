@@ -0,0 +1,241 @@
+package com.shah_s.bakery_cart_service.repository;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import com.shah_s.bakery_cart_service.exception.CartServiceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+// Guest carts kept in Redis (cart.storage.guest-mode=redis) until they are promoted to Postgres.
+//
+// guest-cart:<cartId>            hash: "cart" -> cart header JSON, "item:<itemId>" -> item JSON,
+//                                "version" -> number of saves (checked by every save)
+// guest-cart:session:<sessionId> cart id of the session's guest cart
+// guest-carts:by-created         sorted set of cart ids by creation time, for age-based promotion
+//
+// Keys carry the cart's own expiry as TTL, so abandoned guest carts disappear without cleanup;
+// their index entries are trimmed by the promotion sweep (trimIndex).
+@Repository
+public class GuestCartStore {
+
+    private static final String KEY_PREFIX = "guest-cart:";
+    private static final String SESSION_KEY_PREFIX = "guest-cart:session:";
+    private static final String CREATED_INDEX_KEY = "guest-carts:by-created";
+    private static final String HEADER_FIELD = "cart";
+    private static final String ITEM_FIELD_PREFIX = "item:";
+    private static final String VERSION_FIELD = "version";
+
+    // Compare-and-set on the version read with the cart: a save based on an outdated copy (another
+    // tab wrote in between, or the cart was promoted and deleted) changes nothing and returns -1.
+    // ARGV: expected version, ttl millis, session key ('' for none), cart id, creation score,
+    // number of fields to put, then the field/value pairs to put and the fields to delete. The session
+    // key is passed as an argument, so like StockHoldStore this assumes a single Redis node.
+    private static final RedisScript<Long> SAVE_IF_UNCHANGED = new DefaultRedisScript<>(
+            "local current = tonumber(redis.call('HGET', KEYS[1], 'version') or '0') " +
+            "if current ~= tonumber(ARGV[1]) then return -1 end " +
+            "local puts = tonumber(ARGV[6]) " +
+            "for i = 7, 6 + 2 * puts, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "for i = 7 + 2 * puts, #ARGV do redis.call('HDEL', KEYS[1], ARGV[i]) end " +
+            "redis.call('HSET', KEYS[1], 'version', current + 1) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "if ARGV[3] ~= '' then redis.call('SET', ARGV[3], ARGV[4], 'PX', ARGV[2]) end " +
+            "redis.call('ZADD', KEYS[2], 'NX', ARGV[5], ARGV[4]) " +
+            "return current + 1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper mapper;
+
+    @Value("${cart.storage.guest-mode:database}")
+    private String guestMode;
+
+    public GuestCartStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        // Entities are stored field by field, without the cart <-> item back references
+        this.mapper = objectMapper.copy()
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .addMixIn(Cart.class, CartMixin.class)
+                .addMixIn(CartItem.class, CartItemMixin.class);
+    }
+
+    // True when new guest carts are kept in Redis instead of Postgres
+    public boolean isEnabled() {
+        return "redis".equalsIgnoreCase(guestMode);
+    }
+
+    // Load a guest cart with its items (empty if it is not a guest cart kept in Redis)
+    public Optional<Cart> findById(UUID cartId) {
+        if (!isEnabled() || cartId == null) return Optional.empty();
+
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(cartKey(cartId));
+        if (fields.isEmpty() || !fields.containsKey(HEADER_FIELD)) {
+            return Optional.empty();
+        }
+
+        Cart cart = read((String) fields.get(HEADER_FIELD), Cart.class);
+        Object version = fields.get(VERSION_FIELD);
+        cart.setVersion(version != null ? Long.valueOf((String) version) : 0L);
+        List<CartItem> items = new ArrayList<>();
+        for (Map.Entry<Object, Object> field : fields.entrySet()) {
+            if (((String) field.getKey()).startsWith(ITEM_FIELD_PREFIX)) {
+                CartItem item = read((String) field.getValue(), CartItem.class);
+                item.setCart(cart);
+                items.add(item);
+            }
+        }
+        items.sort(Comparator.comparing(CartItem::getAddedAt));
+        cart.setItems(items);
+        return Optional.of(cart);
+    }
+
+    public Optional<Cart> findBySessionId(String sessionId) {
+        if (!isEnabled() || sessionId == null) return Optional.empty();
+
+        String cartId = redisTemplate.opsForValue().get(SESSION_KEY_PREFIX + sessionId);
+        return cartId != null ? findById(UUID.fromString(cartId)) : Optional.empty();
+    }
+
+    // Write the cart header and the given items in one round trip; removed items are dropped.
+    // Only succeeds if the cart is unchanged since it was read (its version); returns false otherwise,
+    // and the caller re-applies its change to a fresh copy.
+    public boolean save(Cart cart, Collection<CartItem> changedItems) {
+        long expectedVersion = cart.getVersion() != null ? cart.getVersion() : 0L;
+
+        List<String> puts = new ArrayList<>(List.of(HEADER_FIELD, write(cart)));
+        List<String> deletes = new ArrayList<>();
+        for (CartItem item : changedItems) {
+            if (item.isRemoved()) {
+                deletes.add(ITEM_FIELD_PREFIX + item.getId());
+            } else {
+                puts.add(ITEM_FIELD_PREFIX + item.getId());
+                puts.add(write(item));
+            }
+        }
+
+        List<String> args = new ArrayList<>(List.of(
+                String.valueOf(expectedVersion),
+                String.valueOf(timeToLive(cart).toMillis()),
+                cart.getSessionId() != null ? SESSION_KEY_PREFIX + cart.getSessionId() : "",
+                cart.getId().toString(),
+                String.valueOf((long) epochMillis(cart.getCreatedAt())),
+                String.valueOf(puts.size() / 2)));
+        args.addAll(puts);
+        args.addAll(deletes);
+
+        Long version = redisTemplate.execute(SAVE_IF_UNCHANGED, List.of(cartKey(cart.getId()), CREATED_INDEX_KEY),
+                args.toArray());
+        if (version == null || version < 0) {
+            return false;
+        }
+        cart.setVersion(version);
+        return true;
+    }
+
+    // Remove a guest cart (after promotion to Postgres)
+    public void delete(Cart cart) {
+        List<String> keys = new ArrayList<>(List.of(cartKey(cart.getId())));
+        if (cart.getSessionId() != null) {
+            keys.add(SESSION_KEY_PREFIX + cart.getSessionId());
+        }
+        redisTemplate.delete(keys);
+        removeFromIndex(cart.getId());
+    }
+
+    // Guest carts created before the cutoff, oldest first
+    public List<UUID> findCreatedBefore(LocalDateTime cutoff, int limit) {
+        Set<String> ids = redisTemplate.opsForZSet()
+                .rangeByScore(CREATED_INDEX_KEY, 0, epochMillis(cutoff), 0, limit);
+        if (ids == null) return List.of();
+        return ids.stream().map(UUID::fromString).toList();
+    }
+
+    // Drop index entries of guest carts whose keys have expired, among the oldest created before the
+    // cutoff; returns the number removed
+    public int trimIndex(LocalDateTime cutoff, int limit) {
+        List<UUID> cartIds = findCreatedBefore(cutoff, limit);
+        if (cartIds.isEmpty()) return 0;
+
+        List<Object> exists = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                cartIds.forEach(cartId -> ops.hasKey(cartKey(cartId)));
+                return null;
+            }
+        });
+
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < cartIds.size(); i++) {
+            if (!Boolean.TRUE.equals(exists.get(i))) {
+                expired.add(cartIds.get(i).toString());
+            }
+        }
+        if (expired.isEmpty()) return 0;
+
+        Long removed = redisTemplate.opsForZSet().remove(CREATED_INDEX_KEY, expired.toArray());
+        return removed != null ? removed.intValue() : 0;
+    }
+
+    public void removeFromIndex(UUID cartId) {
+        redisTemplate.opsForZSet().remove(CREATED_INDEX_KEY, cartId.toString());
+    }
+
+    // Private helper methods
+    private String cartKey(UUID cartId) {
+        return KEY_PREFIX + cartId;
+    }
+
+    private Duration timeToLive(Cart cart) {
+        Duration ttl = cart.getExpiresAt() != null
+                ? Duration.between(LocalDateTime.now(), cart.getExpiresAt())
+                : Duration.ofHours(Cart.GUEST_CART_TTL_HOURS);
+        return ttl.isNegative() || ttl.isZero() ? Duration.ofSeconds(1) : ttl;
+    }
+
+    private double epochMillis(LocalDateTime time) {
+        Instant instant = (time != null ? time : LocalDateTime.now()).atZone(ZoneId.systemDefault()).toInstant();
+        return instant.toEpochMilli();
+    }
+
+    private String write(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new CartServiceException("Failed to serialize guest cart: " + e.getMessage());
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return mapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new CartServiceException("Failed to read guest cart: " + e.getMessage());
+        }
+    }
+
+    @JsonIgnoreProperties({"items"})
+    private abstract static class CartMixin {
+    }
+
+    @JsonIgnoreProperties({"cart"})
+    private abstract static class CartItemMixin {
+    }
+}
@@ -0,0 +1,229 @@
+package com.shah_s.bakery_cart_service.repository;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+// Stock holds of cart items, shared by every instance and surviving restarts. Hold changes are
+// queued as signed per-product deltas that StockReservationService flushes to product-service.
+//
+// stock-hold:<itemId>               hash: "cartId", "productId", "quantity"
+// stock-holds:by-expiry             sorted set of item ids by hold expiry (epoch millis)
+// stock-holds:cart:<cartId>         set of item ids holding stock for the cart
+// stock-holds:pending               hash: productId -> delta not yet sent (positive = reserve)
+// stock-holds:unconfirmed:<product> hash: itemId -> part of its hold covered by the pending delta
+//
+// The scripts derive per-item keys from the stored hold, so they assume a single Redis node.
+@Repository
+public class StockHoldStore {
+
+    private static final String HOLD_KEY_PREFIX = "stock-hold:";
+    private static final String EXPIRY_INDEX_KEY = "stock-holds:by-expiry";
+    private static final String CART_KEY_PREFIX = "stock-holds:cart:";
+    private static final String PENDING_KEY = "stock-holds:pending";
+    private static final String UNCONFIRMED_KEY_PREFIX = "stock-holds:unconfirmed:";
+
+    // Lua helper shared by the scripts: drop one hold, optionally queueing its release
+    private static final String DROP_HOLD =
+            "local function drop(itemId, release) " +
+            "  local key = 'stock-hold:' .. itemId " +
+            "  local hold = redis.call('HMGET', key, 'cartId', 'productId', 'quantity') " +
+            "  if not hold[1] then return 0 end " +
+            "  redis.call('DEL', key) " +
+            "  redis.call('ZREM', 'stock-holds:by-expiry', itemId) " +
+            "  redis.call('SREM', 'stock-holds:cart:' .. hold[1], itemId) " +
+            "  if release then " +
+            "    redis.call('HINCRBY', 'stock-holds:pending', hold[2], -tonumber(hold[3])) " +
+            "    redis.call('HDEL', 'stock-holds:unconfirmed:' .. hold[2], itemId) " +
+            "  end " +
+            "  return 1 " +
+            "end ";
+
+    // Absolute hold: the difference to the previous quantity is queued. Increases are unconfirmed
+    // until flushed; a decrease first cancels the item's own unconfirmed part.
+    private static final RedisScript<Long> HOLD = new DefaultRedisScript<>(
+            "local previous = tonumber(redis.call('HGET', KEYS[1], 'quantity') or '0') " +
+            "local delta = tonumber(ARGV[4]) - previous " +
+            "redis.call('HSET', KEYS[1], 'cartId', ARGV[2], 'productId', ARGV[3], 'quantity', ARGV[4]) " +
+            "redis.call('ZADD', KEYS[2], ARGV[5], ARGV[1]) " +
+            "redis.call('SADD', KEYS[3], ARGV[1]) " +
+            "if delta ~= 0 then redis.call('HINCRBY', KEYS[4], ARGV[3], delta) end " +
+            "if delta > 0 then " +
+            "  redis.call('HINCRBY', KEYS[5], ARGV[1], delta) " +
+            "elseif delta < 0 then " +
+            "  local left = tonumber(redis.call('HGET', KEYS[5], ARGV[1]) or '0') + delta " +
+            "  if left > 0 then redis.call('HSET', KEYS[5], ARGV[1], left) else redis.call('HDEL', KEYS[5], ARGV[1]) end " +
+            "end " +
+            "return delta", Long.class);
+
+    // ARGV[1] = item id, ARGV[2] = '1' to queue the release; ARGV[3] = only if expired by then (or '')
+    private static final RedisScript<Long> DROP_ITEM = new DefaultRedisScript<>(DROP_HOLD +
+            "if ARGV[3] ~= '' then " +
+            "  local expiry = redis.call('ZSCORE', 'stock-holds:by-expiry', ARGV[1]) " +
+            "  if not expiry or tonumber(expiry) > tonumber(ARGV[3]) then return 0 end " +
+            "end " +
+            "return drop(ARGV[1], ARGV[2] == '1')", Long.class);
+
+    // KEYS[1] = cart set; ARGV[1] = '1' to queue the releases
+    private static final RedisScript<Long> DROP_CART = new DefaultRedisScript<>(DROP_HOLD +
+            "local dropped = 0 " +
+            "for _, itemId in ipairs(redis.call('SMEMBERS', KEYS[1])) do " +
+            "  dropped = dropped + drop(itemId, ARGV[1] == '1') " +
+            "end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return dropped", Long.class);
+
+    // KEYS[1] = cart set, KEYS[2] = expiry index; ARGV[1] = new expiry. XX: released holds stay released
+    private static final RedisScript<Long> EXTEND_CART = new DefaultRedisScript<>(
+            "local extended = 0 " +
+            "for _, itemId in ipairs(redis.call('SMEMBERS', KEYS[1])) do " +
+            "  extended = extended + redis.call('ZADD', KEYS[2], 'XX', 'CH', ARGV[1], itemId) " +
+            "end " +
+            "return extended", Long.class);
+
+    // Take the pending delta of a product with its unconfirmed items: { delta, item, part, ... }
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final RedisScript<List> TAKE_PENDING = new DefaultRedisScript<>(
+            "local delta = redis.call('HGET', KEYS[1], ARGV[1]) or '0' " +
+            "redis.call('HDEL', KEYS[1], ARGV[1]) " +
+            "local result = redis.call('HGETALL', KEYS[2]) " +
+            "redis.call('DEL', KEYS[2]) " +
+            "table.insert(result, 1, delta) " +
+            "return result", List.class);
+
+    // Put a taken delta back (retryable failure); ARGV[2..] = item, part pairs
+    private static final RedisScript<Long> RESTORE_PENDING = new DefaultRedisScript<>(
+            "redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+            "for i = 3, #ARGV, 2 do redis.call('HINCRBY', KEYS[2], ARGV[i], ARGV[i + 1]) end " +
+            "return 1", Long.class);
+
+    // Undo the unconfirmed parts of a rejected reserve; ARGV[1] = product, ARGV[2] = release to queue
+    // instead, ARGV[3..] = item, part pairs. Returns the affected item ids with their cart ids.
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final RedisScript<List> REJECT_PENDING = new DefaultRedisScript<>(DROP_HOLD +
+            "if tonumber(ARGV[2]) ~= 0 then redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) end " +
+            "local affected = {} " +
+            "for i = 3, #ARGV, 2 do " +
+            "  local key = 'stock-hold:' .. ARGV[i] " +
+            "  local cartId = redis.call('HGET', key, 'cartId') " +
+            "  if cartId then " +
+            "    local left = tonumber(redis.call('HGET', key, 'quantity')) - tonumber(ARGV[i + 1]) " +
+            "    if left > 0 then redis.call('HSET', key, 'quantity', left) else drop(ARGV[i], false) end " +
+            "  end " +
+            "  table.insert(affected, ARGV[i]) " +
+            "  table.insert(affected, cartId or '') " +
+            "end " +
+            "return affected", List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public StockHoldStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    // Hold a quantity of a product for a cart item until expiresAt (replaces any previous hold)
+    public void hold(UUID cartId, UUID itemId, UUID productId, int quantity, long expiresAtMillis) {
+        redisTemplate.execute(HOLD,
+                List.of(HOLD_KEY_PREFIX + itemId, EXPIRY_INDEX_KEY, CART_KEY_PREFIX + cartId,
+                        PENDING_KEY, UNCONFIRMED_KEY_PREFIX + productId),
+                itemId.toString(), cartId.toString(), productId.toString(), String.valueOf(quantity),
+                String.valueOf(expiresAtMillis));
+    }
+
+    // Drop an item's hold and queue its release
+    public boolean release(UUID itemId) {
+        return execute(DROP_ITEM, List.of(), itemId.toString(), "1", "") > 0;
+    }
+
+    // Drop an item's hold if it expired by the given time, queueing its release
+    public boolean releaseIfExpired(UUID itemId, long nowMillis) {
+        return execute(DROP_ITEM, List.of(), itemId.toString(), "1", String.valueOf(nowMillis)) > 0;
+    }
+
+    // Drop every hold of a cart; release=false hands the stock over (checkout) instead of releasing it
+    public int dropCart(UUID cartId, boolean release) {
+        return (int) execute(DROP_CART, List.of(CART_KEY_PREFIX + cartId), release ? "1" : "0");
+    }
+
+    // Move every hold of a cart to the given expiry (cart activity)
+    public int extendCart(UUID cartId, long expiresAtMillis) {
+        return (int) execute(EXTEND_CART, List.of(CART_KEY_PREFIX + cartId, EXPIRY_INDEX_KEY),
+                String.valueOf(expiresAtMillis));
+    }
+
+    // Item ids whose holds expired by the given time, oldest first
+    public List<UUID> findExpired(long nowMillis, int limit) {
+        Set<String> ids = redisTemplate.opsForZSet().rangeByScore(EXPIRY_INDEX_KEY, 0, nowMillis, 0, limit);
+        if (ids == null) return List.of();
+        return ids.stream().map(UUID::fromString).toList();
+    }
+
+    public Set<UUID> findProductsWithPendingDeltas() {
+        Set<Object> productIds = redisTemplate.opsForHash().keys(PENDING_KEY);
+        Set<UUID> result = new HashSet<>();
+        for (Object productId : productIds) {
+            result.add(UUID.fromString((String) productId));
+        }
+        return result;
+    }
+
+    // Atomically take (and clear) the pending delta of a product, so only one instance sends it
+    @SuppressWarnings("unchecked")
+    public PendingDelta takePending(UUID productId) {
+        List<Object> result = redisTemplate.execute(TAKE_PENDING,
+                List.of(PENDING_KEY, UNCONFIRMED_KEY_PREFIX + productId), productId.toString());
+        if (result == null || result.isEmpty()) {
+            return new PendingDelta(productId, 0, Map.of());
+        }
+
+        Map<UUID, Integer> unconfirmed = new HashMap<>();
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            unconfirmed.put(UUID.fromString((String) result.get(i)), Integer.parseInt((String) result.get(i + 1)));
+        }
+        return new PendingDelta(productId, Integer.parseInt((String) result.get(0)), unconfirmed);
+    }
+
+    // Put a delta back for the next flush (product-service unreachable or failing)
+    public void restorePending(PendingDelta pending) {
+        List<String> args = new ArrayList<>(List.of(pending.productId().toString(), String.valueOf(pending.delta())));
+        pending.unconfirmed().forEach((itemId, part) -> {
+            args.add(itemId.toString());
+            args.add(String.valueOf(part));
+        });
+        redisTemplate.execute(RESTORE_PENDING, List.of(PENDING_KEY, UNCONFIRMED_KEY_PREFIX + pending.productId()),
+                args.toArray());
+    }
+
+    // A reserve was refused: shrink the holds by their unconfirmed parts and queue the releases that
+    // were netted into the refused delta. Returns the affected item ids with their cart ids.
+    @SuppressWarnings("unchecked")
+    public Map<UUID, UUID> rejectPending(PendingDelta pending) {
+        int unconfirmedTotal = pending.unconfirmed().values().stream().mapToInt(Integer::intValue).sum();
+        List<String> args = new ArrayList<>(List.of(pending.productId().toString(),
+                String.valueOf(Math.min(0, pending.delta() - unconfirmedTotal))));
+        pending.unconfirmed().forEach((itemId, part) -> {
+            args.add(itemId.toString());
+            args.add(String.valueOf(part));
+        });
+
+        List<Object> result = redisTemplate.execute(REJECT_PENDING, List.of(PENDING_KEY), args.toArray());
+        Map<UUID, UUID> affected = new LinkedHashMap<>();
+        for (int i = 0; result != null && i + 1 < result.size(); i += 2) {
+            String cartId = (String) result.get(i + 1);
+            affected.put(UUID.fromString((String) result.get(i)), cartId.isEmpty() ? null : UUID.fromString(cartId));
+        }
+        return affected;
+    }
+
+    // Private helper methods
+    private long execute(RedisScript<Long> script, List<String> keys, Object... args) {
+        Long result = redisTemplate.execute(script, keys, args);
+        return result != null ? result : 0;
+    }
+
+    // Delta taken for sending, with the part of each item's hold it covers
+    public record PendingDelta(UUID productId, int delta, Map<UUID, Integer> unconfirmed) {}
+}
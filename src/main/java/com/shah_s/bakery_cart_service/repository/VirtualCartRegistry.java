@@ -0,0 +1,125 @@
+package com.shah_s.bakery_cart_service.repository;
+
+import com.shah_s.bakery_cart_service.entity.Cart;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Virtual (not yet stored) empty carts handed out when a user or session has no active cart.
+// The owner keys double as a negative-lookup cache: while one exists, the database is known to
+// have no active cart for that owner. A virtual cart is materialized when its first item is added.
+//
+// virtual-cart:id:<cartId>          "<createdAt>|<owner>", owner being "user:<userId>" or "session:<sessionId>"
+// virtual-cart:user:<userId>        "<cartId>|<createdAt>" of the user's virtual cart
+// virtual-cart:session:<sessionId>  "<cartId>|<createdAt>" of the session's virtual cart
+//
+// createdAt (epoch millis) is fixed at registration, so every lookup of a virtual cart yields the
+// same representation and ETag.
+@Repository
+public class VirtualCartRegistry {
+
+    private static final String ID_KEY_PREFIX = "virtual-cart:id:";
+    private static final String OWNER_KEY_PREFIX = "virtual-cart:";
+    private static final String USER_OWNER = "user:";
+    private static final String SESSION_OWNER = "session:";
+    private static final char SEPARATOR = '|';
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${cart.virtual.ttl-minutes:30}")
+    private Integer ttlMinutes;
+
+    public VirtualCartRegistry(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public Optional<Cart> findById(UUID cartId) {
+        String entry = redisTemplate.opsForValue().get(ID_KEY_PREFIX + cartId);
+        if (entry == null) return Optional.empty();
+
+        int separator = entry.indexOf(SEPARATOR);
+        return Optional.of(virtualCart(cartId, entry.substring(separator + 1),
+                Long.parseLong(entry.substring(0, separator))));
+    }
+
+    public Optional<Cart> findByUserId(UUID userId) {
+        return findByOwner(USER_OWNER + userId);
+    }
+
+    public Optional<Cart> findBySessionId(String sessionId) {
+        return findByOwner(SESSION_OWNER + sessionId);
+    }
+
+    // Register a virtual cart for a user or session; concurrent callers end up with the same cart
+    public Cart register(UUID userId, String sessionId) {
+        String owner = owner(userId, sessionId);
+        Duration ttl = Duration.ofMinutes(ttlMinutes);
+        String entry = UUID.randomUUID().toString() + SEPARATOR + System.currentTimeMillis();
+
+        Boolean created = redisTemplate.opsForValue().setIfAbsent(OWNER_KEY_PREFIX + owner, entry, ttl);
+        if (!Boolean.TRUE.equals(created)) {
+            String existing = redisTemplate.opsForValue().get(OWNER_KEY_PREFIX + owner);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+
+        int separator = entry.indexOf(SEPARATOR);
+        UUID cartId = UUID.fromString(entry.substring(0, separator));
+        long createdAt = Long.parseLong(entry.substring(separator + 1));
+        redisTemplate.opsForValue().set(ID_KEY_PREFIX + cartId, String.valueOf(createdAt) + SEPARATOR + owner, ttl);
+        return virtualCart(cartId, owner, createdAt);
+    }
+
+    // Drop the virtual cart of an owner, e.g. once a real cart exists for it
+    public void forget(UUID userId, String sessionId) {
+        if (userId == null && sessionId == null) return;
+
+        String ownerKey = OWNER_KEY_PREFIX + owner(userId, sessionId);
+        String entry = redisTemplate.opsForValue().get(ownerKey);
+        List<String> keys = new ArrayList<>(List.of(ownerKey));
+        if (entry != null) {
+            keys.add(ID_KEY_PREFIX + entry.substring(0, entry.indexOf(SEPARATOR)));
+        }
+        redisTemplate.delete(keys);
+    }
+
+    // Private helper methods
+    private Optional<Cart> findByOwner(String owner) {
+        String entry = redisTemplate.opsForValue().get(OWNER_KEY_PREFIX + owner);
+        if (entry == null) return Optional.empty();
+
+        int separator = entry.indexOf(SEPARATOR);
+        return Optional.of(virtualCart(UUID.fromString(entry.substring(0, separator)), owner,
+                Long.parseLong(entry.substring(separator + 1))));
+    }
+
+    private String owner(UUID userId, String sessionId) {
+        return userId != null ? USER_OWNER + userId : SESSION_OWNER + sessionId;
+    }
+
+    // Every timestamp derives from the registration time, so repeated lookups serialize identically
+    private Cart virtualCart(UUID cartId, String owner, long createdAtMillis) {
+        Cart cart = owner.startsWith(USER_OWNER)
+                ? new Cart(UUID.fromString(owner.substring(USER_OWNER.length())), null)
+                : new Cart(owner.substring(SESSION_OWNER.length()));
+        LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(createdAtMillis), ZoneId.systemDefault());
+        cart.setId(cartId);
+        cart.setCreatedAt(createdAt);
+        cart.setUpdatedAt(createdAt);
+        cart.setLastActivityAt(createdAt);
+        cart.setExpiresAt(cart.getUserId() != null
+                ? createdAt.plusDays(Cart.USER_CART_TTL_DAYS)
+                : createdAt.plusHours(Cart.GUEST_CART_TTL_HOURS));
+        return cart;
+    }
+}
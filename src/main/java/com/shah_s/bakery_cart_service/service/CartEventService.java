@@ -0,0 +1,247 @@
+package com.shah_s.bakery_cart_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_cart_service.dto.CartEvent;
+import com.shah_s.bakery_cart_service.exception.CartServiceException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server-sent cart change events. Every node subscribes once to the Redis pattern cart-events:*
+// (CartEventConfig) and fans each message out to its local subscribers of that cart; the payload is
+// passed through as is, so a message is serialized once no matter how many streams receive it.
+//
+// Each subscriber has a bounded queue drained by a small sender pool, so a slow client never blocks
+// the Redis listener or other clients. On overflow its queue is replaced by a single RESYNC event.
+@Service
+public class CartEventService implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartEventService.class);
+
+    public static final String CHANNEL_PREFIX = "cart-events:";
+    private static final String EVENT_NAME = "cart";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<UUID, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private ExecutorService senders;
+
+    @Value("${cart.events.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${cart.events.buffer-size:32}")
+    private Integer bufferSize;
+
+    @Value("${cart.events.max-subscribers:10000}")
+    private Integer maxSubscribers;
+
+    @Value("${cart.events.stream-timeout-minutes:30}")
+    private Integer streamTimeoutMinutes;
+
+    @Value("${cart.events.sender-threads:4}")
+    private Integer senderThreads;
+
+    public CartEventService(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void startSenders() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "cart-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void closeStreams() {
+        subscribers.values().forEach(cartSubscribers -> cartSubscribers.forEach(s -> s.emitter.complete()));
+        senders.shutdown();
+    }
+
+    // Publish a change to every node; called once the change has committed
+    public void publish(CartEvent event) {
+        if (!enabled) return;
+
+        try {
+            redisTemplate.convertAndSend(CHANNEL_PREFIX + event.getCartId(), objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            // Subscribers resync on their next reconnect; the write itself has succeeded
+            logger.warn("Failed to publish {} event for cart {}: {}", event.getType(), event.getCartId(), e.getMessage());
+        }
+    }
+
+    // Open an event stream for a cart on this node
+    public SseEmitter subscribe(UUID cartId) {
+        if (!enabled) {
+            throw new CartServiceException("Cart events are disabled");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new CartServiceException("Too many cart event subscribers");
+        }
+
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(streamTimeoutMinutes).toMillis());
+        Subscriber subscriber = new Subscriber(cartId, emitter, bufferSize);
+        subscribers.compute(cartId, (id, cartSubscribers) -> {
+            Set<Subscriber> set = cartSubscribers != null ? cartSubscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete); // EventSource clients reconnect on their own
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        // Flush the response headers right away so proxies see an open stream
+        deliver(subscriber, SseEmitter.event().comment("subscribed").build());
+        logger.debug("Cart event stream opened for cart {} ({} on this node)", cartId, subscriberCount.get());
+        return emitter;
+    }
+
+    // Redis pub/sub: one message per cart change, fanned out to the local subscribers of that cart
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        UUID cartId;
+        try {
+            cartId = UUID.fromString(channel.substring(CHANNEL_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring cart event on unexpected channel: {}", channel);
+            return;
+        }
+
+        Set<Subscriber> cartSubscribers = subscribers.get(cartId);
+        if (cartSubscribers == null || cartSubscribers.isEmpty()) return;
+
+        // Built once and shared: the emitters only read it
+        Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event()
+                .name(EVENT_NAME)
+                .data(new String(message.getBody(), StandardCharsets.UTF_8), MediaType.APPLICATION_JSON)
+                .build();
+        for (Subscriber subscriber : cartSubscribers) {
+            deliver(subscriber, event);
+        }
+    }
+
+    // Heartbeat comment to idle streams, so proxies and load balancers keep them open
+    @Scheduled(fixedRateString = "${cart.events.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        if (subscriberCount.get() == 0) return;
+
+        Set<ResponseBodyEmitter.DataWithMediaType> heartbeat = SseEmitter.event().comment("heartbeat").build();
+        for (Set<Subscriber> cartSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : cartSubscribers) {
+                if (subscriber.queue.isEmpty()) {
+                    deliver(subscriber, heartbeat);
+                }
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    // Private helper methods
+    private void deliver(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (!subscriber.queue.offer(event)) {
+            // Too far behind: drop what is queued and tell the client to refetch the cart
+            subscriber.queue.clear();
+            subscriber.queue.offer(resyncEvent(subscriber.cartId));
+            logger.debug("Cart event buffer overflow for cart {}, sending resync", subscriber.cartId);
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    // One drain per subscriber at a time keeps its events in order
+    private void drain(Subscriber subscriber) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while ((event = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(event);
+            }
+        } catch (Exception e) {
+            logger.debug("Cart event stream for cart {} closed: {}", subscriber.cartId, e.getMessage());
+            unsubscribe(subscriber);
+            subscriber.emitter.complete();
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (!subscriber.queue.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) return;
+
+        subscriber.queue.clear();
+        subscribers.computeIfPresent(subscriber.cartId, (id, cartSubscribers) -> {
+            cartSubscribers.remove(subscriber);
+            return cartSubscribers.isEmpty() ? null : cartSubscribers;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> resyncEvent(UUID cartId) {
+        CartEvent resync = new CartEvent();
+        resync.setType(CartEvent.Type.RESYNC);
+        resync.setCartId(cartId);
+        try {
+            return SseEmitter.event().name(EVENT_NAME)
+                    .data(objectMapper.writeValueAsString(resync), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (Exception e) {
+            throw new CartServiceException("Failed to serialize cart event: " + e.getMessage());
+        }
+    }
+
+    private static final class Subscriber {
+        private final UUID cartId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(UUID cartId, SseEmitter emitter, int bufferSize) {
+            this.cartId = cartId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
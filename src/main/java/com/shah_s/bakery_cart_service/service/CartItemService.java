@@ -3,12 +3,15 @@ package com.shah_s.bakery_cart_service.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shah_s.bakery_cart_service.client.ProductServiceClient;
 import com.shah_s.bakery_cart_service.dto.AddItemRequest;
+import com.shah_s.bakery_cart_service.dto.CartEvent;
 import com.shah_s.bakery_cart_service.dto.CartItemResponse;
 import com.shah_s.bakery_cart_service.dto.UpdateItemRequest;
 import com.shah_s.bakery_cart_service.entity.Cart;
 import com.shah_s.bakery_cart_service.entity.CartItem;
 import com.shah_s.bakery_cart_service.exception.CartServiceException;
 import com.shah_s.bakery_cart_service.repository.CartItemRepository;
+import com.shah_s.bakery_cart_service.repository.CartSnapshotStore;
+import com.shah_s.bakery_cart_service.repository.GuestCartStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,11 +21,14 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -38,16 +44,31 @@ public class CartItemService {
 
     final private ObjectMapper objectMapper;
 
+    final private StockReservationService stockReservationService;
+
+    final private GuestCartStore guestCartStore;
+
+    final private CartSnapshotStore cartSnapshotStore;
+
+    final private CartEventService cartEventService;
+
     @Value("${cart.validation.check-stock-on-add:true}")
     private Boolean checkStockOnAdd;
 
     @Value("${cart.limits.max-quantity-per-item:50}")
     private Integer maxQuantityPerItem;
 
-    public CartItemService(CartItemRepository cartItemRepository, ProductServiceClient productServiceClient, ObjectMapper objectMapper) {
+    public CartItemService(CartItemRepository cartItemRepository, ProductServiceClient productServiceClient,
+                           ObjectMapper objectMapper, StockReservationService stockReservationService,
+                           GuestCartStore guestCartStore, CartSnapshotStore cartSnapshotStore,
+                           CartEventService cartEventService) {
         this.cartItemRepository = cartItemRepository;
         this.productServiceClient = productServiceClient;
         this.objectMapper = objectMapper;
+        this.stockReservationService = stockReservationService;
+        this.guestCartStore = guestCartStore;
+        this.cartSnapshotStore = cartSnapshotStore;
+        this.cartEventService = cartEventService;
     }
 
     // Add item to cart
@@ -55,22 +76,11 @@ public class CartItemService {
         logger.info("Adding item to cart: {} product: {}", cart.getId(), request.getProductId());
 
         try {
-            // Get product information
-            Map<String, Object> productInfo = productServiceClient.getProductById(request.getProductId());
-            if (productInfo == null) {
-                throw new CartServiceException("Product not found: " + request.getProductId());
-            }
-
-            // Validate stock if enabled
-            if (checkStockOnAdd) {
-                validateStock(request.getProductId(), request.getQuantity());
-            }
-
-            // Create cart item
-            CartItem cartItem = createCartItemFromProduct(cart, productInfo, request);
+            CartItem cartItem = buildCartItem(cart, request);
             cart.addItem(cartItem);
 
             CartItem savedItem = cartItemRepository.save(cartItem);
+            stockReservationService.hold(cart.getId(), savedItem.getId(), savedItem.getProductId(), savedItem.getQuantity());
             logger.info("Item added to cart successfully: {}", savedItem.getId());
 
             return CartItemResponse.from(savedItem);
@@ -81,6 +91,26 @@ public class CartItemService {
         }
     }
 
+    // Build a cart item from product information without attaching or saving it
+    public CartItem buildCartItem(Cart cart, AddItemRequest request) {
+        // Get product information
+        Map<String, Object> productInfo = productServiceClient.getProductById(request.getProductId());
+        if (productInfo == null) {
+            throw new CartServiceException("Product not found: " + request.getProductId());
+        }
+
+        checkStock(request.getProductId(), request.getQuantity());
+
+        return createCartItemFromProduct(cart, productInfo, request);
+    }
+
+    // Validate stock for a new item quantity if enabled (also used by the Redis guest cart paths)
+    public void checkStock(UUID productId, Integer quantity) {
+        if (checkStockOnAdd) {
+            validateStock(productId, quantity);
+        }
+    }
+
     // Update cart item
     @CacheEvict(value = "cart-items", key = "#itemId")
     public CartItemResponse updateCartItem(UUID itemId, UpdateItemRequest request) {
@@ -95,12 +125,10 @@ public class CartItemService {
                 throw new CartServiceException("Maximum quantity per item exceeded: " + maxQuantityPerItem);
             }
 
-            // Validate stock if enabled
-            if (checkStockOnAdd) {
-                validateStock(cartItem.getProductId(), request.getQuantity());
-            }
+            checkStock(cartItem.getProductId(), request.getQuantity());
 
             cartItem.setQuantity(request.getQuantity());
+            cartItem.clearStockRejection();
             if (request.getSpecialInstructions() != null) {
                 cartItem.setSpecialInstructions(request.getSpecialInstructions());
             }
@@ -115,6 +143,10 @@ public class CartItemService {
             Cart cart = cartItem.getCart();
             cart.updateTotals();
 
+            if (updatedItem.isActive()) {
+                stockReservationService.hold(cart.getId(), updatedItem.getId(), updatedItem.getProductId(), updatedItem.getQuantity());
+            }
+
             logger.info("Cart item updated successfully: {}", itemId);
             return CartItemResponse.from(updatedItem);
 
@@ -141,6 +173,7 @@ public class CartItemService {
 
             cartItem.remove();
             cartItemRepository.save(cartItem);
+            stockReservationService.release(itemId);
 
             // Update cart totals
             cartItem.getCart().updateTotals();
@@ -155,6 +188,7 @@ public class CartItemService {
 
     // Save item for later
     @CacheEvict(value = "cart-items", key = "#itemId")
+    @CartMutation(itemIdParam = "itemId")
     public CartItemResponse saveItemForLater(UUID itemId) {
         logger.info("Saving item for later: {}", itemId);
 
@@ -163,36 +197,127 @@ public class CartItemService {
 
         cartItem.saveForLater();
         CartItem savedItem = cartItemRepository.save(cartItem);
+        stockReservationService.release(itemId);
 
         // Update cart totals
         cartItem.getCart().updateTotals();
+        cartChanged(cartItem.getCart(), CartEvent.itemChanged(CartEvent.Type.ITEM_UPDATED, cartItem.getCart(), savedItem));
 
         return CartItemResponse.from(savedItem);
     }
 
     // Move item to cart
     @CacheEvict(value = "cart-items", key = "#itemId")
+    @CartMutation(itemIdParam = "itemId")
     public CartItemResponse moveItemToCart(UUID itemId) {
         logger.info("Moving item to cart: {}", itemId);
 
         CartItem cartItem = cartItemRepository.findById(itemId)
                 .orElseThrow(() -> new CartServiceException("Cart item not found with ID: " + itemId));
 
+        // Only one active line per product: fold into the existing one instead
+        CartItem activeItem = cartItemRepository
+                .findActiveItemByCartAndProduct(cartItem.getCart().getId(), cartItem.getCartCreatedAt(), cartItem.getProductId())
+                .orElse(null);
+        if (activeItem != null && !activeItem.getId().equals(itemId)) {
+            activeItem.setQuantity(Math.min(activeItem.getQuantity() + cartItem.getQuantity(), maxQuantityPerItem));
+            cartItem.remove();
+            cartItemRepository.save(cartItem);
+            CartItem mergedItem = cartItemRepository.save(activeItem);
+
+            cartItem.getCart().updateTotals();
+            cartChanged(cartItem.getCart(), CartEvent.of(CartEvent.Type.CART_UPDATED, cartItem.getCart()));
+            stockReservationService.hold(cartItem.getCart().getId(), mergedItem.getId(),
+                    mergedItem.getProductId(), mergedItem.getQuantity());
+            return CartItemResponse.from(mergedItem);
+        }
+
         cartItem.moveToCart();
         CartItem movedItem = cartItemRepository.save(cartItem);
+        stockReservationService.hold(cartItem.getCart().getId(), itemId, movedItem.getProductId(), movedItem.getQuantity());
 
         // Update cart totals
         cartItem.getCart().updateTotals();
+        cartChanged(cartItem.getCart(), CartEvent.itemChanged(CartEvent.Type.ITEM_UPDATED, cartItem.getCart(), movedItem));
 
         return CartItemResponse.from(movedItem);
     }
 
+    // Bulk operations: one statement each, independent of the number of items, pruned to the cart's
+    // partition (cartCreatedAt). Callers recompute the cart totals afterwards (CartRepository.recalculateTotals).
+
+    // Remove all items from cart
+    @CacheEvict(value = "cart-items", key = "#cartId")
+    public int removeAllItems(UUID cartId, LocalDateTime cartCreatedAt) {
+        logger.info("Removing all items from cart: {}", cartId);
+
+        int removed = cartItemRepository.removeAllItemsFromCart(cartId, cartCreatedAt, LocalDateTime.now());
+        stockReservationService.releaseCart(cartId);
+        return removed;
+    }
+
+    // Save all active items for later
+    @CacheEvict(value = "cart-items", key = "#cartId")
+    public int saveAllItemsForLater(UUID cartId, LocalDateTime cartCreatedAt) {
+        logger.info("Saving all items for later in cart: {}", cartId);
+
+        int saved = cartItemRepository.saveAllItemsForLater(cartId, cartCreatedAt, LocalDateTime.now());
+        stockReservationService.releaseCart(cartId);
+        return saved;
+    }
+
+    // Move all saved items back to cart
+    @CacheEvict(value = "cart-items", key = "#cartId")
+    public int moveAllItemsToCart(UUID cartId, LocalDateTime cartCreatedAt) {
+        logger.info("Moving all saved items to cart: {}", cartId);
+
+        LocalDateTime now = LocalDateTime.now();
+        cartItemRepository.foldSavedItemsIntoActive(cartId, cartCreatedAt, maxQuantityPerItem, now);
+        int folded = cartItemRepository.removeSavedItemsAlreadyActive(cartId, cartCreatedAt, now);
+        int moved = folded + cartItemRepository.moveAllItemsToCart(cartId, cartCreatedAt);
+        holdActiveItems(cartId, cartCreatedAt);
+        return moved;
+    }
+
+    // Merge active items of one cart into another
+    @CacheEvict(value = "cart-items", allEntries = true)
+    public int mergeItems(Cart sourceCart, Cart targetCart, boolean handleDuplicates) {
+        logger.info("Merging items: {} -> {}", sourceCart.getId(), targetCart.getId());
+
+        LocalDateTime now = LocalDateTime.now();
+        int merged = handleDuplicates
+                ? cartItemRepository.upsertItemsFromCart(sourceCart.getId(), sourceCart.getCreatedAt(),
+                        targetCart.getId(), targetCart.getCreatedAt(), maxQuantityPerItem, now)
+                : cartItemRepository.copyMissingItems(sourceCart.getId(), sourceCart.getCreatedAt(),
+                        targetCart.getId(), targetCart.getCreatedAt(), maxQuantityPerItem, now);
+
+        // The target holds its merged lines. The source keeps its holds while it keeps its items; a
+        // merge that deletes it releases them with the items (deleteAllItems).
+        holdActiveItems(targetCart.getId(), targetCart.getCreatedAt());
+        return merged;
+    }
+
+    // Delete all items of a cart (before deleting the cart itself)
+    @CacheEvict(value = "cart-items", key = "#cartId")
+    public int deleteAllItems(UUID cartId, LocalDateTime cartCreatedAt) {
+        int deleted = cartItemRepository.deleteAllItemsByCartId(cartId, cartCreatedAt);
+        stockReservationService.releaseCart(cartId);
+        return deleted;
+    }
+
     // Get cart items
     @Cacheable(value = "cart-items", key = "#cartId")
     @Transactional(readOnly = true)
     public List<CartItemResponse> getCartItems(UUID cartId) {
         logger.debug("Fetching items for cart: {}", cartId);
 
+        Optional<Cart> guestCart = guestCartStore.findById(cartId);
+        if (guestCart.isPresent()) {
+            return guestCart.get().getActiveItems().stream()
+                    .map(CartItemResponse::from)
+                    .collect(Collectors.toList());
+        }
+
         return cartItemRepository.findActiveItemsByCartId(cartId).stream()
                 .map(CartItemResponse::from)
                 .collect(Collectors.toList());
@@ -203,6 +328,13 @@ public class CartItemService {
     public List<CartItemResponse> getSavedItems(UUID cartId) {
         logger.debug("Fetching saved items for cart: {}", cartId);
 
+        Optional<Cart> guestCart = guestCartStore.findById(cartId);
+        if (guestCart.isPresent()) {
+            return guestCart.get().getSavedItems().stream()
+                    .map(CartItemResponse::from)
+                    .collect(Collectors.toList());
+        }
+
         return cartItemRepository.findSavedItemsByCartId(cartId).stream()
                 .map(CartItemResponse::from)
                 .collect(Collectors.toList());
@@ -270,6 +402,31 @@ public class CartItemService {
         return cartItem;
     }
 
+    // Item-level endpoints change the cart without rebuilding its read snapshot: tombstone it after
+    // commit at the version the flush gave the cart, and notify the cart's event stream subscribers.
+    // The change is cart activity, so the cart's stock holds are extended too.
+    private void cartChanged(Cart cart, CartEvent event) {
+        stockReservationService.touchCart(cart.getId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cartSnapshotStore.invalidate(cart.getId(), cart.getVersion());
+                    cartEventService.publish(event);
+                }
+            });
+        } else {
+            cartSnapshotStore.invalidate(cart.getId(), cart.getVersion());
+            cartEventService.publish(event);
+        }
+    }
+
+    private void holdActiveItems(UUID cartId, LocalDateTime cartCreatedAt) {
+        for (CartItem item : cartItemRepository.findActiveItemsByCart(cartId, cartCreatedAt)) {
+            stockReservationService.hold(cartId, item.getId(), item.getProductId(), item.getQuantity());
+        }
+    }
+
     private void validateStock(UUID productId, Integer quantity) {
         try {
             Map<String, Object> stockInfo = productServiceClient.checkStockAvailability(productId, quantity);
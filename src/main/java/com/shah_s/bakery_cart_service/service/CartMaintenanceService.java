@@ -2,18 +2,25 @@ package com.shah_s.bakery_cart_service.service;
 
 import com.shah_s.bakery_cart_service.entity.Cart;
 import com.shah_s.bakery_cart_service.repository.CartItemRepository;
+import com.shah_s.bakery_cart_service.repository.CartPartitionRepository;
+import com.shah_s.bakery_cart_service.repository.CartSnapshotStore;
+import com.shah_s.bakery_cart_service.repository.GuestCartStore;
 import com.shah_s.bakery_cart_service.repository.CartRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class CartMaintenanceService {
@@ -26,9 +33,39 @@ public class CartMaintenanceService {
     @Autowired
     private CartItemRepository cartItemRepository;
 
+    @Autowired
+    private CartPartitionRepository cartPartitionRepository;
+
+    @Autowired
+    private GuestCartStore guestCartStore;
+
+    @Autowired
+    private CartSnapshotStore cartSnapshotStore;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     @Value("${cart.expiration.cleanup-interval-hours:6}")
     private Integer cleanupIntervalHours;
 
+    @Value("${cart.storage.guest-promote-after-minutes:120}")
+    private Integer guestPromoteAfterMinutes;
+
+    @Value("${cart.storage.guest-promote-batch-size:500}")
+    private Integer guestPromoteBatchSize;
+
+    @Value("${cart.partitions.months-ahead:2}")
+    private Integer partitionMonthsAhead;
+
+    @Value("${cart.partitions.retention-months:3}")
+    private Integer retentionMonths;
+
     // Clean up expired carts every 6 hours
     @Scheduled(fixedRateString = "${cart.expiration.cleanup-interval-hours:6}000000") // Convert hours to milliseconds
     @Transactional
@@ -40,34 +77,92 @@ public class CartMaintenanceService {
             LocalDateTime now = LocalDateTime.now();
 
             // Mark expired carts
-            int expiredCount = cartRepository.markExpiredCarts(now);
-            logger.info("Marked {} carts as expired", expiredCount);
+            List<UUID> expiredCarts = cartRepository.markExpiredCarts(now);
+            stockReservationService.releaseCarts(expiredCarts);
+            logger.info("Marked {} carts as expired", expiredCarts.size());
 
             // Mark abandoned carts (no activity for 24 hours)
             LocalDateTime abandonedCutoff = now.minusHours(24);
-            int abandonedCount = cartRepository.markAbandonedCarts(now, abandonedCutoff);
-            logger.info("Marked {} carts as abandoned", abandonedCount);
+            List<UUID> abandonedCarts = cartRepository.markAbandonedCarts(now, abandonedCutoff);
+            stockReservationService.releaseCarts(abandonedCarts);
+            logger.info("Marked {} carts as abandoned", abandonedCarts.size());
 
-            // Clean up old expired/abandoned carts (older than 7 days)
-            LocalDateTime cleanupCutoff = now.minusDays(7);
-            int cleanedUp = cartRepository.cleanupOldCarts(cleanupCutoff);
-            logger.info("Cleaned up {} old carts", cleanedUp);
+            // Old expired/abandoned carts and removed items go with their month (maintainPartitions)
 
-            // Clean up empty carts (older than 1 hour)
+            // Clean up empty carts (older than 1 hour); their items follow through the cascading foreign key
             LocalDateTime emptyCutoff = now.minusHours(1);
             int emptyCleanedUp = cartRepository.cleanupEmptyCarts(emptyCutoff);
             logger.info("Cleaned up {} empty carts", emptyCleanedUp);
 
-            // Clean up removed cart items (older than 30 days)
-            LocalDateTime itemCleanupCutoff = now.minusDays(30);
-            int itemsCleanedUp = cartItemRepository.cleanupRemovedItems(itemCleanupCutoff);
-            logger.info("Cleaned up {} removed cart items", itemsCleanedUp);
+            // Bulk status changes and deletes bypass the read model
+            int snapshotsEvicted = cartSnapshotStore.evictAll();
+            logger.info("Evicted {} cart snapshots", snapshotsEvicted);
 
         } catch (Exception e) {
             logger.error("Error during cart cleanup: {}", e.getMessage(), e);
         }
     }
 
+    // Create upcoming monthly partitions and drop the months past retention (hourly, and once at startup)
+    @Scheduled(initialDelay = 0, fixedRateString = "${cart.partitions.maintenance-interval-ms:3600000}")
+    public void maintainPartitions() {
+        try {
+            YearMonth thisMonth = YearMonth.now();
+
+            int created = cartPartitionRepository.createMonthlyPartitions(thisMonth, thisMonth.plusMonths(partitionMonthsAhead));
+            if (created > 0) {
+                logger.info("Created cart partitions for {} months", created);
+            }
+
+            for (YearMonth month : cartPartitionRepository.findMonthsBefore(thisMonth.minusMonths(retentionMonths))) {
+                List<UUID> droppedCarts = cartPartitionRepository.dropMonth(month);
+                if (droppedCarts == null) {
+                    logger.warn("Kept cart partition for {}: it still holds live carts", month);
+                    continue;
+                }
+                evictCarts(droppedCarts);
+                logger.info("Dropped cart partitions for {} ({} carts)", month, droppedCarts.size());
+            }
+
+        } catch (Exception e) {
+            logger.error("Error during cart partition maintenance: {}", e.getMessage(), e);
+        }
+    }
+
+    // Write Redis guest carts that outlived the age threshold to Postgres
+    @Scheduled(fixedDelayString = "${cart.storage.guest-promote-interval-ms:60000}")
+    public void promoteAgedGuestCarts() {
+        if (!guestCartStore.isEnabled()) return;
+
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(guestPromoteAfterMinutes);
+
+            // Carts that expired in Redis leave their index entries behind; drop them first so they
+            // do not fill the promotion batch
+            int trimmed = guestCartStore.trimIndex(cutoff, guestPromoteBatchSize);
+            if (trimmed > 0) {
+                logger.info("Dropped {} expired guest carts from the creation index", trimmed);
+            }
+
+            int promoted = 0;
+            for (UUID cartId : guestCartStore.findCreatedBefore(cutoff, guestPromoteBatchSize)) {
+                try {
+                    if (cartService.promoteAgedGuestCart(cartId)) {
+                        promoted++;
+                    }
+                } catch (Exception e) {
+                    logger.warn("Failed to promote guest cart {}: {}", cartId, e.getMessage());
+                }
+            }
+            if (promoted > 0) {
+                logger.info("Promoted {} guest carts to the database", promoted);
+            }
+
+        } catch (Exception e) {
+            logger.error("Error promoting guest carts: {}", e.getMessage(), e);
+        }
+    }
+
     // Send abandonment notifications (placeholder for future implementation)
     @Scheduled(cron = "0 0 12 * * ?") // Daily at noon
     public void sendAbandonmentNotifications() {
@@ -84,4 +179,17 @@ public class CartMaintenanceService {
             logger.error("Error sending abandonment notifications: {}", e.getMessage());
         }
     }
+
+    // Private helper methods
+
+    // Forget cached state of carts that no longer exist
+    private void evictCarts(List<UUID> cartIds) {
+        cartSnapshotStore.evict(cartIds);
+        for (String cacheName : List.of("carts", "cart-items")) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cartIds.forEach(cache::evict);
+            }
+        }
+    }
 }
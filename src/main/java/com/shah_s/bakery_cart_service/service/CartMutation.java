@@ -0,0 +1,21 @@
+package com.shah_s.bakery_cart_service.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a cart mutation entry point: CartLaneAspect runs it on the lane of its cart
+// (CartMutationLanes). The cart is the UUID parameter named by cartIdParam; item-level entry points
+// name their item id parameter instead (itemIdParam) and run on the lane of the item's cart.
+// Merges are laned by CartLaneAspect on both carts and are not marked.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CartMutation {
+
+    String cartIdParam() default "cartId";
+
+    String itemIdParam() default "";
+}
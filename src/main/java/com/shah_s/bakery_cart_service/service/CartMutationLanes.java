@@ -0,0 +1,160 @@
+package com.shah_s.bakery_cart_service.service;
+
+import com.shah_s.bakery_cart_service.config.DependencyTimings;
+import com.shah_s.bakery_cart_service.exception.CartServiceException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Actor-style serialization of cart mutations: every cart maps to one of cart.lanes.count lanes (a
+// single thread with its own queue), and all mutations of a cart run one after the other, in arrival
+// order, on that lane. Different carts proceed in parallel on the other lanes. CartLaneAspect sends
+// the CartService mutations here; reads do not go through lanes.
+//
+// A mutation of several carts (merge) holds all their lanes: the lanes are taken in index order, each
+// one waiting on the next, and the mutation runs on the last one. A lane only ever waits for a
+// higher one, so two merges of the same carts in opposite directions cannot deadlock. Mutations
+// started from inside a lane run inline for the lanes that thread already holds.
+//
+// The caller blocks until its mutation is done; the request id (MDC) and the request's dependency
+// timings follow the mutation onto the lane thread.
+@Service
+public class CartMutationLanes {
+
+    private static final ThreadLocal<Set<Integer>> HELD = new ThreadLocal<>();
+
+    private ExecutorService[] lanes;
+
+    @Value("${cart.lanes.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${cart.lanes.count:64}")
+    private Integer laneCount;
+
+    @Value("${cart.lanes.timeout-ms:10000}")
+    private Long timeoutMs;
+
+    @PostConstruct
+    void startLanes() {
+        lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "cart-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    void stopLanes() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    public <T> T run(UUID cartId, Mutation<T> mutation) throws Throwable {
+        return run(Set.of(cartId), mutation);
+    }
+
+    public <T> T run(Collection<UUID> cartIds, Mutation<T> mutation) throws Throwable {
+        if (!enabled) {
+            return mutation.run();
+        }
+
+        Set<Integer> held = HELD.get() != null ? HELD.get() : Set.of();
+        int[] needed = cartIds.stream()
+                .mapToInt(this::laneOf)
+                .filter(lane -> !held.contains(lane))
+                .distinct()
+                .sorted()
+                .toArray();
+        if (needed.length == 0) {
+            return mutation.run();
+        }
+        return onLanes(needed, held, mutation);
+    }
+
+    // Private helper methods
+    private int laneOf(UUID cartId) {
+        return Math.floorMod(cartId.hashCode(), lanes.length);
+    }
+
+    // Runs the mutation on the first of the lanes, which takes the rest of them before running it.
+    // A caller that times out only gives up if its task has not started; a started task is waited for,
+    // so a mutation reported as failed is never applied behind the caller's back.
+    private <T> T onLanes(int[] needed, Set<Integer> held, Mutation<T> mutation) throws Throwable {
+        int lane = needed[0];
+        int[] rest = Arrays.copyOfRange(needed, 1, needed.length);
+        Map<String, String> logContext = MDC.getCopyOfContextMap();
+        AtomicBoolean claimed = new AtomicBoolean();
+
+        Future<T> result = lanes[lane].submit(DependencyTimings.onBehalfOfRequest(() -> {
+            if (!claimed.compareAndSet(false, true)) return null; // Caller gave up
+
+            Set<Integer> holding = new HashSet<>(held);
+            holding.add(lane);
+            HELD.set(holding);
+            if (logContext != null) {
+                MDC.setContextMap(logContext);
+            }
+            try {
+                return rest.length == 0 ? mutation.run() : onLanes(rest, holding, mutation);
+            } catch (Exception e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new ExecutionException(t);
+            } finally {
+                HELD.remove();
+                MDC.clear();
+            }
+        }));
+
+        try {
+            try {
+                return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    result.cancel(false);
+                    throw new CartServiceException("Cart is busy, please retry");
+                }
+                return result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CartServiceException("Interrupted while waiting for the cart");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private Throwable unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        while (cause instanceof ExecutionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    @FunctionalInterface
+    public interface Mutation<T> {
+        T run() throws Throwable;
+    }
+}
@@ -3,26 +3,36 @@ package com.shah_s.bakery_cart_service.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shah_s.bakery_cart_service.client.OrderServiceClient;
 import com.shah_s.bakery_cart_service.client.ProductServiceClient;
+import com.shah_s.bakery_cart_service.config.CartProjectionWriters;
 import com.shah_s.bakery_cart_service.dto.*;
 import com.shah_s.bakery_cart_service.entity.Cart;
 import com.shah_s.bakery_cart_service.entity.CartItem;
+import com.shah_s.bakery_cart_service.exception.CartPreconditionFailedException;
 import com.shah_s.bakery_cart_service.exception.CartServiceException;
+import com.shah_s.bakery_cart_service.repository.CartBulkWriter;
 import com.shah_s.bakery_cart_service.repository.CartRepository;
+import com.shah_s.bakery_cart_service.repository.CartSnapshotStore;
+import com.shah_s.bakery_cart_service.repository.GuestCartStore;
+import com.shah_s.bakery_cart_service.repository.VirtualCartRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +41,8 @@ public class CartService {
 
     private static final Logger logger = LoggerFactory.getLogger(CartService.class);
 
+    private static final int GUEST_SAVE_ATTEMPTS = 3;
+
     @Autowired
     private CartRepository cartRepository;
 
@@ -43,6 +55,30 @@ public class CartService {
     @Autowired
     private OrderServiceClient orderServiceClient;
 
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private GuestCartStore guestCartStore;
+
+    @Autowired
+    private CartBulkWriter cartBulkWriter;
+
+    @Autowired
+    private VirtualCartRegistry virtualCartRegistry;
+
+    @Autowired
+    private CartSnapshotStore cartSnapshotStore;
+
+    @Autowired
+    private CartSnapshotRebuilds cartSnapshotRebuilds;
+
+    @Autowired
+    private CartEventService cartEventService;
+
+    @Autowired
+    private CartProjectionWriters cartProjectionWriters;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -66,35 +102,41 @@ public class CartService {
         logger.info("Creating cart for user: {} session: {}", request.getUserId(), request.getSessionId());
 
         try {
+            // Guest cart already kept in Redis
+            Optional<Cart> guestCart = request.getUserId() == null
+                    ? guestCartStore.findBySessionId(request.getSessionId())
+                    : Optional.empty();
+            if (guestCart.isPresent()) {
+                Cart cart = guestCart.get();
+                cart.updateActivity();
+                guestCartStore.save(cart, List.of());
+                return CartResponse.from(cart);
+            }
+
             // Check if cart already exists
             Optional<Cart> existingCart = findExistingCart(request.getUserId(), request.getSessionId());
             if (existingCart.isPresent()) {
                 Cart cart = existingCart.get();
                 cart.updateActivity();
-                return CartResponse.from(cartRepository.save(cart));
+                return toResponse(cart);
             }
 
-            // Create new cart
-            Cart cart = new Cart(request.getUserId(), request.getSessionId());
-            cart.setCustomerName(request.getCustomerName());
-            cart.setCustomerEmail(request.getCustomerEmail());
-            cart.setCurrencyCode(request.getCurrencyCode());
-            cart.setDiscountCode(request.getDiscountCode());
-            cart.setSpecialInstructions(request.getSpecialInstructions());
-            cart.setDeliveryType(request.getDeliveryType());
-            cart.setDeliveryAddress(request.getDeliveryAddress());
-            cart.setSource(request.getSource());
-            cart.setDeviceType(request.getDeviceType());
-            cart.setUserAgent(request.getUserAgent());
+            // A real cart replaces any virtual one handed out for this owner
+            virtualCartRegistry.forget(request.getUserId(), request.getSessionId());
 
-            if (request.getMetadata() != null) {
-                cart.setMetadata(convertMetadataToJson(request.getMetadata()));
+            // New guest carts stay in Redis until they are promoted
+            if (request.getUserId() == null && guestCartStore.isEnabled()) {
+                return CartResponse.from(createGuestCart(request));
             }
 
+            // Create new cart
+            Cart cart = new Cart(request.getUserId(), request.getSessionId());
+            applyCartRequest(cart, request);
+
             Cart savedCart = cartRepository.save(cart);
             logger.info("Cart created successfully: {}", savedCart.getId());
 
-            return CartResponse.from(savedCart);
+            return toResponse(savedCart);
 
         } catch (Exception e) {
             logger.error("Failed to create cart: {}", e.getMessage());
@@ -102,18 +144,139 @@ public class CartService {
         }
     }
 
-    // Get cart by ID
-    @Cacheable(value = "carts", key = "#cartId")
+    // Get cart by ID from the read model: a stored snapshot is returned as is, a miss rebuilds it
+    // (once for concurrent misses, see CartSnapshotRebuilds)
+    @Transactional(readOnly = true)
+    public CartSnapshot getCartSnapshot(UUID cartId) {
+        CartSnapshot snapshot = cartSnapshotStore.get(cartId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        return cartSnapshotRebuilds.rebuild("cart:" + cartId,
+                () -> cartSnapshotStore.get(cartId),
+                () -> rebuildSnapshot(cartId));
+    }
+
+    // Write the snapshots of stored carts loaded with their items in one query (startup warm-up).
+    // Prices are not re-validated, as for snapshots written after a change. Returns the number written.
+    @Transactional(readOnly = true)
+    public int preloadCartSnapshots(List<UUID> cartIds) {
+        int written = 0;
+        for (Cart cart : cartRepository.findAllWithItemsByIdIn(cartIds)) {
+            CartSnapshot snapshot = new CartSnapshot(cart.getId(), cart.getVersion(), cart.getUserId(),
+                    writeJson(CartResponse.from(cart)));
+            if (cartSnapshotStore.put(snapshot, cart.getStatus() == Cart.CartStatus.ACTIVE)) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    // Get the active cart of a user from the read model (user pointer -> snapshot), rebuilding it on a
+    // miss (once for concurrent misses, see CartSnapshotRebuilds)
+    @Transactional(readOnly = true)
+    public CartSnapshot getCartSnapshotForUser(UUID userId) {
+        CartSnapshot snapshot = storedSnapshotForUser(userId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        return cartSnapshotRebuilds.rebuild("user:" + userId,
+                () -> storedSnapshotForUser(userId),
+                () -> rebuildSnapshotForUser(userId));
+    }
+
+    // Sparse fieldset of a cart, built from the cart itself: unrequested item lists and derived
+    // fields are never computed (and the items never loaded). Same version and ETag as the snapshot.
+    @Transactional(readOnly = true)
+    public CartSnapshot getCartProjection(UUID cartId, CartProjection projection) {
+        if (projection.isAll()) {
+            return getCartSnapshot(cartId);
+        }
+
+        Optional<Cart> guestCart = guestCartStore.findById(cartId);
+        if (guestCart.isPresent()) {
+            return projectedSnapshot(guestCart.get(), null, false, projection);
+        }
+
+        Optional<Cart> storedCart = cartRepository.findById(cartId);
+        if (storedCart.isEmpty()) {
+            Cart virtualCart = virtualCartRegistry.findById(cartId)
+                    .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+            return projectedSnapshot(virtualCart, virtualCart.getUserId(), true, projection);
+        }
+
+        Cart cart = storedCart.get();
+        return projectedSnapshot(cart, cart.getUserId(), false, projection);
+    }
+
     @Transactional(readOnly = true)
-    public CartResponse getCartById(UUID cartId) {
-        logger.debug("Fetching cart by ID: {}", cartId);
-        Cart cart = cartRepository.findById(cartId)
+    public CartSnapshot getCartProjectionForUser(UUID userId, CartProjection projection) {
+        if (projection.isAll()) {
+            return getCartSnapshotForUser(userId);
+        }
+
+        Optional<Cart> virtualCart = virtualCartRegistry.findByUserId(userId);
+        if (virtualCart.isEmpty()) {
+            Optional<Cart> existingCart = cartRepository.findActiveCartByUserId(userId);
+            if (existingCart.isPresent()) {
+                return projectedSnapshot(existingCart.get(), userId, false, projection);
+            }
+            virtualCart = Optional.of(virtualCartRegistry.register(userId, null));
+        }
+        return projectedSnapshot(virtualCart.get(), userId, true, projection);
+    }
+
+    // Version and owner of a stored snapshot, without the body (null if there is none)
+    public CartSnapshot getCartSnapshotHeader(UUID cartId) {
+        return cartSnapshotStore.getHeader(cartId);
+    }
+
+    // Owner of a cart (null for guest carts), read from the snapshot header or a projection query,
+    // never by rebuilding the cart
+    @Transactional(readOnly = true)
+    public UUID getCartOwner(UUID cartId) {
+        CartSnapshot header = cartSnapshotStore.getHeader(cartId);
+        if (header != null) {
+            return header.userId();
+        }
+        Optional<CartRepository.CartOwner> owner = cartRepository.findOwnerById(cartId);
+        if (owner.isPresent()) {
+            return owner.get().getUserId();
+        }
+        if (guestCartStore.findById(cartId).isPresent()) {
+            return null;
+        }
+        return virtualCartRegistry.findById(cartId)
+                .map(Cart::getUserId)
                 .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
-        if (checkPriceOnView) {
-            validateCartItems(cart);
+    }
+
+    public CartSnapshot getCartSnapshotHeaderForUser(UUID userId) {
+        UUID cartId = cartSnapshotStore.findCartIdByUser(userId);
+        return cartId != null ? cartSnapshotStore.getHeader(cartId) : null;
+    }
+
+    // Run a cart mutation if the cart still has the client's ETag (If-Match). The check and the
+    // mutation share this transaction, and the cart row stays locked from the check on, so no other
+    // write can get in between; a stored cart changed since the check fails the @Version check instead.
+    @Transactional(rollbackFor = Throwable.class)
+    public <T> T runIfMatch(UUID cartId, String ifMatch, CartMutationLanes.Mutation<T> mutation) throws Throwable {
+        Optional<Long> version = cartRepository.lockVersionById(cartId);
+        String currentEtag;
+        if (version.isPresent()) {
+            currentEtag = CartSnapshot.etag(cartId, version.get());
+        } else {
+            // Redis guest or virtual cart: content based
+            currentEtag = getCartSnapshot(cartId).etag();
+        }
+
+        if (!CartSnapshot.strongEtagMatches(ifMatch, currentEtag)) {
+            logger.debug("If-Match failed for cart {}: {} != {}", cartId, ifMatch, currentEtag);
+            throw new CartPreconditionFailedException("Cart was modified: " + cartId, currentEtag);
         }
-        CartResponse response = CartResponse.from(cart);
-        return convertIfMap(response, objectMapper);
+        return mutation.run();
     }
 
     // Utility to convert LinkedHashMap to CartResponse
@@ -136,31 +299,18 @@ public class CartService {
         return (CartResponse) obj;
     }
 
-    // Get or create cart for user
-    @Cacheable(value = "carts", key = "'user-' + #userId")
-    @Transactional(readOnly = true)
-    public CartResponse getOrCreateCartForUser(UUID userId) {
-        logger.debug("Getting or creating cart for user: {}", userId);
-        Optional<Cart> existingCart = cartRepository.findActiveCartByUserId(userId);
-        if (existingCart.isPresent()) {
-            Cart cart = existingCart.get();
-            if (checkPriceOnView) {
-                validateCartItems(cart);
-            }
-            CartResponse response = CartResponse.from(cart);
-            return convertIfMap(response, objectMapper);
-        }
-        CartRequest request = new CartRequest(userId, null);
-        CartResponse response = createCart(request);
-        return convertIfMap(response, objectMapper);
-    }
-
-    // Get or create cart for session
-    @Cacheable(value = "carts", key = "'session-' + #sessionId")
+    // Get or create cart for session: a miss returns a virtual cart that is stored on its first item
+    @Cacheable(value = "carts", key = "'session-' + #sessionId", sync = true)
     @Transactional(readOnly = true)
     public CartResponse getOrCreateCartForSession(String sessionId) {
         logger.debug("Getting or creating cart for session: {}", sessionId);
-        Optional<Cart> existingCart = cartRepository.findActiveCartBySessionId(sessionId);
+        Optional<Cart> virtualCart = virtualCartRegistry.findBySessionId(sessionId);
+        if (virtualCart.isPresent()) {
+            return toVirtualResponse(virtualCart.get());
+        }
+
+        Optional<Cart> existingCart = guestCartStore.findBySessionId(sessionId)
+                .or(() -> cartRepository.findActiveCartBySessionId(sessionId));
         if (existingCart.isPresent()) {
             Cart cart = existingCart.get();
             if (checkPriceOnView) {
@@ -169,121 +319,197 @@ public class CartService {
             CartResponse response = CartResponse.from(cart);
             return convertIfMap(response, objectMapper);
         }
-        CartRequest request = new CartRequest(sessionId);
-        CartResponse response = createCart(request);
-        return convertIfMap(response, objectMapper);
+        return toVirtualResponse(virtualCartRegistry.register(null, sessionId));
     }
 
     // Add item to cart
-    @CacheEvict(value = "carts", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(value = "carts", allEntries = true),
+            @CacheEvict(value = "cart-items", key = "#cartId")
+    })
+    @CartMutation
     public CartResponse addItemToCart(UUID cartId, AddItemRequest request) {
-        logger.info("Adding item to cart: {} product: {} quantity: {}",
-                cartId, request.getProductId(), request.getQuantity());
+        return addItem(cartId, request, true).response();
+    }
 
-        try {
-            Cart cart = cartRepository.findById(cartId)
-                    .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+    // Add item to cart, answering with the changed item and totals only (delta response mode)
+    @Caching(evict = {
+            @CacheEvict(value = "carts", allEntries = true),
+            @CacheEvict(value = "cart-items", key = "#cartId")
+    })
+    @CartMutation
+    public CartEvent addItemToCartDelta(UUID cartId, AddItemRequest request) {
+        return addItem(cartId, request, false).delta();
+    }
 
-            // Validate cart limits
-            validateCartLimits(cart, request.getQuantity());
+    // Update item in cart
+    @Caching(evict = {
+            @CacheEvict(value = "carts", allEntries = true),
+            @CacheEvict(value = "cart-items", key = "#cartId")
+    })
+    @CartMutation
+    public CartResponse updateCartItem(UUID cartId, UUID itemId, UpdateItemRequest request) {
+        return updateItem(cartId, itemId, request, true).response();
+    }
 
-            // Check if item already exists in cart
-            CartItem existingItem = cart.findItemByProductId(request.getProductId());
-            if (existingItem != null) {
-                // Update existing item quantity
-                int newQuantity = existingItem.getQuantity() + request.getQuantity();
-                if (newQuantity > maxQuantityPerItem) {
-                    throw new CartServiceException("Maximum quantity per item exceeded: " + maxQuantityPerItem);
-                }
+    @Caching(evict = {
+            @CacheEvict(value = "carts", allEntries = true),
+            @CacheEvict(value = "cart-items", key = "#cartId")
+    })
+    @CartMutation
+    public CartEvent updateCartItemDelta(UUID cartId, UUID itemId, UpdateItemRequest request) {
+        return updateItem(cartId, itemId, request, false).delta();
+    }
 
-                cartItemService.updateItemQuantity(existingItem.getId(), newQuantity);
+    // Apply the merged item updates of one cart in a single transaction (CartWriteCoalescer): one
+    // cart write, snapshot and cache eviction for the whole batch. Deltas are keyed by item id.
+    @Caching(evict = {
+            @CacheEvict(value = "carts", allEntries = true),
+            @CacheEvict(value = "cart-items", key = "#cartId")
+    })
+    @CartMutation
+    public ItemUpdates updateCartItems(UUID cartId, Map<UUID, UpdateItemRequest> updates, boolean fullResponse) {
+        logger.info("Updating {} cart items in cart: {}", updates.size(), cartId);
+
+        try {
+            Cart cart = changeGuestCart(cartId, guestCart -> {
+                updates.forEach((itemId, update) -> updateGuestCartItem(guestCart, itemId, update));
+                return guestCart;
+            });
+            CartResponse response;
+            if (cart != null) {
+                response = fullResponse ? CartResponse.from(cart) : null;
             } else {
-                // Add new item
-                cartItemService.addItemToCart(cart, request);
+                updates.forEach(cartItemService::updateCartItem);
+                cart = cartRepository.findById(cartId)
+                        .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+                response = writeCart(cart, fullResponse);
             }
 
-            // Refresh cart
-            Cart updatedCart = cartRepository.findById(cartId)
-                    .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+            Map<UUID, CartEvent> deltas = new HashMap<>();
+            for (UUID itemId : updates.keySet()) {
+                CartEvent delta = itemEvent(cart, itemId);
+                publishEvent(delta);
+                deltas.put(itemId, delta);
+            }
 
-            logger.info("Item added to cart successfully: {}", cartId);
-            return CartResponse.from(updatedCart);
+            logger.info("Cart items updated successfully: {}", cartId);
+            return new ItemUpdates(response, deltas);
 
         } catch (Exception e) {
-            logger.error("Failed to add item to cart {}: {}", cartId, e.getMessage());
-            throw new CartServiceException("Failed to add item to cart: " + e.getMessage());
+            logger.error("Failed to update cart items of cart {}: {}", cartId, e.getMessage());
+            throw new CartServiceException("Failed to update cart item: " + e.getMessage());
         }
     }
 
-    // Update item in cart
-    @CacheEvict(value = "carts", allEntries = true)
-    public CartResponse updateCartItem(UUID cartId, UUID itemId, UpdateItemRequest request) {
-        logger.info("Updating cart item: {} in cart: {}", itemId, cartId);
+    // Remove item from cart
+    @Caching(evict = {
+            @CacheEvict(value = "carts", allEntries = true),
+            @CacheEvict(value = "cart-items", key = "#cartId")
+    })
+    @CartMutation
+    public CartResponse removeItemFromCart(UUID cartId, UUID itemId) {
+        return removeItem(cartId, itemId, true).response();
+    }
+
+    @Caching(evict = {
+            @CacheEvict(value = "carts", allEntries = true),
+            @CacheEvict(value = "cart-items", key = "#cartId")
+    })
+    @CartMutation
+    public CartEvent removeItemFromCartDelta(UUID cartId, UUID itemId) {
+        return removeItem(cartId, itemId, false).delta();
+    }
+
+    // Clear cart
+    @Caching(evict = {
+            @CacheEvict(value = "carts", allEntries = true),
+            @CacheEvict(value = "cart-items", key = "#cartId")
+    })
+    @CartMutation
+    public CartResponse clearCart(UUID cartId) {
+        logger.info("Clearing cart: {}", cartId);
 
         try {
-            cartItemService.updateCartItem(itemId, request);
+            Cart guestCart = changeGuestCart(cartId, this::clearGuestCart);
+            if (guestCart != null) {
+                publishEvent(CartEvent.of(CartEvent.Type.CART_CLEARED, guestCart));
+                return CartResponse.from(guestCart);
+            }
 
-            Cart updatedCart = cartRepository.findById(cartId)
-                    .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+            LocalDateTime createdAt = requireCart(cartId);
 
-            logger.info("Cart item updated successfully: {}", itemId);
-            return CartResponse.from(updatedCart);
+            cartItemService.removeAllItems(cartId, createdAt);
+            Cart clearedCart = recalculateTotals(cartId, createdAt);
+
+            CartResponse response = toResponse(clearedCart);
+            publishEvent(CartEvent.of(CartEvent.Type.CART_CLEARED, clearedCart));
+
+            logger.info("Cart cleared successfully: {}", cartId);
+            return response;
 
         } catch (Exception e) {
-            logger.error("Failed to update cart item {}: {}", itemId, e.getMessage());
-            throw new CartServiceException("Failed to update cart item: " + e.getMessage());
+            logger.error("Failed to clear cart {}: {}", cartId, e.getMessage());
+            throw new CartServiceException("Failed to clear cart: " + e.getMessage());
         }
     }
 
-    // Remove item from cart
+    // Save all items for later
     @CacheEvict(value = "carts", allEntries = true)
-    public CartResponse removeItemFromCart(UUID cartId, UUID itemId) {
-        logger.info("Removing item from cart: {} item: {}", cartId, itemId);
+    @CartMutation
+    public CartResponse saveAllItemsForLater(UUID cartId) {
+        logger.info("Saving all items for later: {}", cartId);
 
         try {
-            cartItemService.removeItemFromCart(itemId);
+            LocalDateTime createdAt = requireCart(cartId);
 
-            Cart updatedCart = cartRepository.findById(cartId)
-                    .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+            cartItemService.saveAllItemsForLater(cartId, createdAt);
+            Cart updatedCart = recalculateTotals(cartId, createdAt);
 
-            logger.info("Item removed from cart successfully: {}", itemId);
-            return CartResponse.from(updatedCart);
+            CartResponse response = toResponse(updatedCart);
+            publishEvent(CartEvent.of(CartEvent.Type.CART_UPDATED, updatedCart));
+
+            logger.info("All items saved for later: {}", cartId);
+            return response;
 
         } catch (Exception e) {
-            logger.error("Failed to remove item from cart {}: {}", cartId, e.getMessage());
-            throw new CartServiceException("Failed to remove item from cart: " + e.getMessage());
+            logger.error("Failed to save items for later in cart {}: {}", cartId, e.getMessage());
+            throw new CartServiceException("Failed to save items for later: " + e.getMessage());
         }
     }
 
-    // Clear cart
+    // Move all saved items back to cart
     @CacheEvict(value = "carts", allEntries = true)
-    public CartResponse clearCart(UUID cartId) {
-        logger.info("Clearing cart: {}", cartId);
+    @CartMutation
+    public CartResponse moveAllItemsToCart(UUID cartId) {
+        logger.info("Moving all saved items to cart: {}", cartId);
 
         try {
-            Cart cart = cartRepository.findById(cartId)
-                    .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+            LocalDateTime createdAt = requireCart(cartId);
 
-            cart.clearItems();
-            Cart clearedCart = cartRepository.save(cart);
+            cartItemService.moveAllItemsToCart(cartId, createdAt);
+            Cart updatedCart = recalculateTotals(cartId, createdAt);
 
-            logger.info("Cart cleared successfully: {}", cartId);
-            return CartResponse.from(clearedCart);
+            CartResponse response = toResponse(updatedCart);
+            publishEvent(CartEvent.of(CartEvent.Type.CART_UPDATED, updatedCart));
+
+            logger.info("All saved items moved to cart: {}", cartId);
+            return response;
 
         } catch (Exception e) {
-            logger.error("Failed to clear cart {}: {}", cartId, e.getMessage());
-            throw new CartServiceException("Failed to clear cart: " + e.getMessage());
+            logger.error("Failed to move saved items in cart {}: {}", cartId, e.getMessage());
+            throw new CartServiceException("Failed to move saved items to cart: " + e.getMessage());
         }
     }
 
     // Update cart details
     @CacheEvict(value = "carts", allEntries = true)
+    @CartMutation
     public CartResponse updateCart(UUID cartId, CartUpdateRequest request) {
         logger.info("Updating cart: {}", cartId);
 
         try {
-            Cart cart = cartRepository.findById(cartId)
-                    .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+            Cart cart = loadCart(cartId);
 
             // Update cart fields
             if (request.getCustomerName() != null) {
@@ -312,8 +538,11 @@ public class CartService {
             cart.updateActivity();
             Cart updatedCart = cartRepository.save(cart);
 
+            CartResponse response = toResponse(updatedCart);
+            publishEvent(CartEvent.of(CartEvent.Type.CART_UPDATED, updatedCart));
+
             logger.info("Cart updated successfully: {}", cartId);
-            return CartResponse.from(updatedCart);
+            return response;
 
         } catch (Exception e) {
             logger.error("Failed to update cart {}: {}", cartId, e.getMessage());
@@ -327,33 +556,10 @@ public class CartService {
         logger.info("Merging carts: {} -> {}", request.getSourceCartId(), request.getTargetCartId());
 
         try {
-            Cart sourceCart = cartRepository.findById(request.getSourceCartId())
-                    .orElseThrow(() -> new CartServiceException("Source cart not found"));
-
-            Cart targetCart = cartRepository.findById(request.getTargetCartId())
-                    .orElseThrow(() -> new CartServiceException("Target cart not found"));
-
-            // Merge items
-            for (CartItem sourceItem : sourceCart.getActiveItems()) {
-                CartItem targetItem = targetCart.findItemByProductId(sourceItem.getProductId());
-
-                if (targetItem != null && request.getHandleDuplicates()) {
-                    // Merge quantities
-                    int newQuantity = Math.min(targetItem.getQuantity() + sourceItem.getQuantity(), maxQuantityPerItem);
-                    targetItem.setQuantity(newQuantity);
-                } else if (targetItem == null) {
-                    // Add new item
-                    CartItem newItem = new CartItem(targetCart, sourceItem.getProductId(),
-                            sourceItem.getProductName(), sourceItem.getQuantity(),
-                            sourceItem.getUnitPrice());
-                    newItem.setProductSku(sourceItem.getProductSku());
-                    newItem.setProductCategory(sourceItem.getProductCategory());
-                    newItem.setProductDescription(sourceItem.getProductDescription());
-                    newItem.setProductImageUrl(sourceItem.getProductImageUrl());
-                    newItem.setSpecialInstructions(sourceItem.getSpecialInstructions());
-                    targetCart.addItem(newItem);
-                }
-            }
+            // Redis guest carts are written to Postgres once they gain a user, and a virtual target
+            // (a user without a stored cart yet) is stored before the items are merged into it
+            Cart sourceCart = loadCart(request.getSourceCartId());
+            Cart targetCart = loadCart(request.getTargetCartId());
 
             // Update target cart information from source if target is empty
             if (targetCart.getCustomerName() == null && sourceCart.getCustomerName() != null) {
@@ -363,16 +569,25 @@ public class CartService {
                 targetCart.setCustomerEmail(sourceCart.getCustomerEmail());
             }
 
-            targetCart.updateActivity();
-            Cart mergedCart = cartRepository.save(targetCart);
+            // Merge items set-based (duplicates update in place, the rest is copied), then one totals recompute
+            UUID sourceCartId = sourceCart.getId();
+            UUID targetCartId = targetCart.getId();
+            cartItemService.mergeItems(sourceCart, targetCart, request.getHandleDuplicates());
 
             // Delete source cart if requested
             if (request.getDeleteSourceCart()) {
-                cartRepository.delete(sourceCart);
+                cartItemService.deleteAllItems(sourceCartId, sourceCart.getCreatedAt());
+                cartRepository.deleteCartById(sourceCartId, sourceCart.getCreatedAt());
+                afterCommit(() -> cartSnapshotStore.invalidateDeleted(sourceCartId));
+                publishEvent(CartEvent.of(CartEvent.Type.CART_DELETED, sourceCart));
             }
 
+            Cart mergedCart = recalculateTotals(targetCartId, targetCart.getCreatedAt());
+            CartResponse response = toResponse(mergedCart);
+            publishEvent(CartEvent.of(CartEvent.Type.CART_UPDATED, mergedCart));
+
             logger.info("Carts merged successfully: {}", request.getTargetCartId());
-            return CartResponse.from(mergedCart);
+            return response;
 
         } catch (Exception e) {
             logger.error("Failed to merge carts: {}", e.getMessage());
@@ -382,26 +597,28 @@ public class CartService {
 
     // Save cart for later
     @CacheEvict(value = "carts", key = "#cartId")
+    @CartMutation
     public CartResponse saveCartForLater(UUID cartId) {
         logger.info("Saving cart for later: {}", cartId);
 
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+        Cart cart = loadCart(cartId);
 
         cart.markAsSaved();
         Cart savedCart = cartRepository.save(cart);
 
-        return CartResponse.from(savedCart);
+        CartResponse response = toResponse(savedCart);
+        publishEvent(CartEvent.of(CartEvent.Type.CART_UPDATED, savedCart));
+        return response;
     }
 
     // Checkout cart
     @CacheEvict(value = "carts", allEntries = true)
+    @CartMutation
     public Map<String, Object> checkoutCart(UUID cartId, CheckoutRequest request) {
         logger.info("Checking out cart: {}", cartId);
 
         try {
-            Cart cart = cartRepository.findById(cartId)
-                    .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+            Cart cart = loadCart(cartId);
 
             if (cart.isEmpty()) {
                 throw new CartServiceException("Cannot checkout empty cart");
@@ -410,6 +627,15 @@ public class CartService {
             // Validate all items before checkout
             validateCartItems(cart);
 
+            // Items whose stock reserve was refused cannot be ordered
+            List<String> unavailable = cart.getActiveItems().stream()
+                    .filter(item -> Boolean.FALSE.equals(item.getIsAvailable()))
+                    .map(CartItem::getProductName)
+                    .toList();
+            if (!unavailable.isEmpty()) {
+                throw new CartServiceException("Insufficient stock for: " + String.join(", ", unavailable));
+            }
+
             // Create order request
             Map<String, Object> orderRequest = createOrderRequest(cart, request);
 
@@ -420,12 +646,14 @@ public class CartService {
             // Mark cart as converted
             cart.markAsConverted(UUID.fromString((String) orderResponse.get("id")));
             cartRepository.save(cart);
+            stockReservationService.commitCart(cartId);
 
             logger.info("Cart checked out successfully: {} -> Order: {}", cartId, orderResponse.get("id"));
 
             Map<String, Object> response = new HashMap<>();
-            response.put("cart", CartResponse.from(cart));
+            response.put("cart", toResponse(cart));
             response.put("order", orderResponse);
+            publishEvent(CartEvent.of(CartEvent.Type.CART_CONVERTED, cart));
 
             return response;
 
@@ -435,6 +663,19 @@ public class CartService {
         }
     }
 
+    // Promote a Redis guest cart that outlived the age threshold; empty ones are left to expire
+    @CartMutation
+    public boolean promoteAgedGuestCart(UUID cartId) {
+        Optional<Cart> guestCart = guestCartStore.findById(cartId);
+        if (guestCart.isEmpty() || guestCart.get().isEmpty()) {
+            guestCartStore.removeFromIndex(cartId);
+            return false;
+        }
+
+        promoteGuestCart(guestCart.get());
+        return true;
+    }
+
     // Get user carts
     @Transactional(readOnly = true)
     public List<CartResponse> getUserCarts(UUID userId) {
@@ -497,6 +738,140 @@ public class CartService {
         }
     }
 
+    // Item mutations shared by the full and the delta response modes; fullResponse=false skips
+    // building the CartResponse and drops the cart snapshot instead of rewriting it
+    private ItemChange addItem(UUID cartId, AddItemRequest request, boolean fullResponse) {
+        logger.info("Adding item to cart: {} product: {} quantity: {}",
+                cartId, request.getProductId(), request.getQuantity());
+
+        try {
+            Function<Cart, ItemChange> addToGuestCart = cart -> {
+                CartEvent.Type type = cart.hasItem(request.getProductId())
+                        ? CartEvent.Type.ITEM_UPDATED : CartEvent.Type.ITEM_ADDED;
+                addItemToGuestCart(cart, request);
+                return guestItemChange(cart, CartEvent.itemChanged(type, cart,
+                        cart.findItemByProductId(request.getProductId())), fullResponse);
+            };
+            ItemChange guestChange = changeGuestCart(cartId, addToGuestCart);
+            if (guestChange != null) {
+                return guestChange;
+            }
+
+            Optional<Cart> existingCart = cartRepository.findById(cartId);
+            if (existingCart.isEmpty()) {
+                // First item of a virtual cart: store the cart where carts of its kind live
+                Cart virtualCart = virtualCartRegistry.findById(cartId)
+                        .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+                if (virtualCart.isGuest() && guestCartStore.isEnabled()) {
+                    afterCommit(() -> virtualCartRegistry.forget(null, virtualCart.getSessionId()));
+                    try {
+                        return addToGuestCart.apply(virtualCart);
+                    } catch (GuestCartConflictException e) {
+                        // A concurrent first add stored the cart already: add to the stored one
+                        return changeGuestCart(cartId, addToGuestCart);
+                    }
+                }
+                existingCart = Optional.of(materializeVirtualCart(virtualCart));
+            }
+            Cart cart = existingCart.get();
+
+            // Validate cart limits
+            validateCartLimits(cart, request.getQuantity());
+
+            // Check if item already exists in cart
+            CartItem existingItem = cart.findItemByProductId(request.getProductId());
+            if (existingItem != null) {
+                // Update existing item quantity
+                int newQuantity = existingItem.getQuantity() + request.getQuantity();
+                if (newQuantity > maxQuantityPerItem) {
+                    throw new CartServiceException("Maximum quantity per item exceeded: " + maxQuantityPerItem);
+                }
+
+                cartItemService.updateItemQuantity(existingItem.getId(), newQuantity);
+            } else {
+                // Add new item
+                cartItemService.addItemToCart(cart, request);
+            }
+
+            // Refresh cart
+            Cart updatedCart = cartRepository.findById(cartId)
+                    .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+
+            CartResponse response = writeCart(updatedCart, fullResponse);
+            CartEvent delta = CartEvent.itemChanged(
+                    existingItem != null ? CartEvent.Type.ITEM_UPDATED : CartEvent.Type.ITEM_ADDED,
+                    updatedCart, updatedCart.findItemByProductId(request.getProductId()));
+            publishEvent(delta);
+
+            logger.info("Item added to cart successfully: {}", cartId);
+            return new ItemChange(response, delta);
+
+        } catch (Exception e) {
+            logger.error("Failed to add item to cart {}: {}", cartId, e.getMessage());
+            throw new CartServiceException("Failed to add item to cart: " + e.getMessage());
+        }
+    }
+
+    private ItemChange updateItem(UUID cartId, UUID itemId, UpdateItemRequest request, boolean fullResponse) {
+        logger.info("Updating cart item: {} in cart: {}", itemId, cartId);
+
+        try {
+            ItemChange guestChange = changeGuestCart(cartId, cart -> {
+                updateGuestCartItem(cart, itemId, request);
+                return guestItemChange(cart, itemEvent(cart, itemId), fullResponse);
+            });
+            if (guestChange != null) {
+                return guestChange;
+            }
+
+            cartItemService.updateCartItem(itemId, request);
+
+            Cart updatedCart = cartRepository.findById(cartId)
+                    .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+
+            CartResponse response = writeCart(updatedCart, fullResponse);
+            CartEvent delta = itemEvent(updatedCart, itemId);
+            publishEvent(delta);
+
+            logger.info("Cart item updated successfully: {}", itemId);
+            return new ItemChange(response, delta);
+
+        } catch (Exception e) {
+            logger.error("Failed to update cart item {}: {}", itemId, e.getMessage());
+            throw new CartServiceException("Failed to update cart item: " + e.getMessage());
+        }
+    }
+
+    private ItemChange removeItem(UUID cartId, UUID itemId, boolean fullResponse) {
+        logger.info("Removing item from cart: {} item: {}", cartId, itemId);
+
+        try {
+            ItemChange guestChange = changeGuestCart(cartId, cart -> {
+                removeGuestCartItem(cart, itemId);
+                return guestItemChange(cart, CartEvent.itemRemoved(cart, itemId), fullResponse);
+            });
+            if (guestChange != null) {
+                return guestChange;
+            }
+
+            cartItemService.removeItemFromCart(itemId);
+
+            Cart updatedCart = cartRepository.findById(cartId)
+                    .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+
+            CartResponse response = writeCart(updatedCart, fullResponse);
+            CartEvent delta = CartEvent.itemRemoved(updatedCart, itemId);
+            publishEvent(delta);
+
+            logger.info("Item removed from cart successfully: {}", itemId);
+            return new ItemChange(response, delta);
+
+        } catch (Exception e) {
+            logger.error("Failed to remove item from cart {}: {}", cartId, e.getMessage());
+            throw new CartServiceException("Failed to remove item from cart: " + e.getMessage());
+        }
+    }
+
     // Private helper methods
     private Optional<Cart> findExistingCart(UUID userId, String sessionId) {
         if (userId != null) {
@@ -507,6 +882,325 @@ public class CartService {
         return Optional.empty();
     }
 
+    // Make sure the cart is stored and return its created_at, the partition key the bulk statements
+    // on it are pruned with (this lookup by id is the only one that probes every partition)
+    private LocalDateTime requireCart(UUID cartId) {
+        Optional<Cart> guestCart = guestCartStore.findById(cartId);
+        if (guestCart.isPresent()) {
+            return promoteGuestCart(guestCart.get()).getCreatedAt();
+        }
+        return cartRepository.findCreatedAtById(cartId)
+                .orElseGet(() -> materializeVirtualCart(virtualCartRegistry.findById(cartId)
+                        .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId)))
+                        .getCreatedAt());
+    }
+
+    // Load a cart from Postgres, promoting Redis guest carts and materializing virtual ones first
+    private Cart loadCart(UUID cartId) {
+        return guestCartStore.findById(cartId)
+                .map(this::promoteGuestCart)
+                .or(() -> cartRepository.findById(cartId))
+                .or(() -> virtualCartRegistry.findById(cartId).map(this::materializeVirtualCart))
+                .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+    }
+
+    // Store a virtual cart under its id; the registry entry is dropped once the transaction commits.
+    // Concurrent first adds insert the same id, which the idempotent insert absorbs.
+    private Cart materializeVirtualCart(Cart virtualCart) {
+        logger.info("Materializing virtual cart: {}", virtualCart.getId());
+
+        cartBulkWriter.insertCartWithItems(virtualCart);
+        afterCommit(() -> virtualCartRegistry.forget(virtualCart.getUserId(), virtualCart.getSessionId()));
+
+        return cartRepository.findById(virtualCart.getId())
+                .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+    }
+
+    // Response for a written cart. Every write counts as activity, so the flush always bumps the
+    // version; the snapshot built from that version replaces the stored one once the write commits.
+    private CartResponse toResponse(Cart cart) {
+        cart.updateActivity();
+        Cart savedCart = cartRepository.saveAndFlush(cart);
+        stockReservationService.touchCart(savedCart.getId());
+
+        CartResponse response = CartResponse.from(savedCart);
+        CartSnapshot snapshot = new CartSnapshot(savedCart.getId(), savedCart.getVersion(),
+                savedCart.getUserId(), writeJson(response));
+        boolean active = savedCart.getStatus() == Cart.CartStatus.ACTIVE;
+        afterCommit(() -> cartSnapshotStore.put(snapshot, active));
+        return response;
+    }
+
+    // Write for an item mutation. Delta mode gets the same flush and version bump as toResponse but
+    // builds no response (null): the snapshot is tombstoned at the new version after commit and
+    // rebuilt by the next read.
+    private CartResponse writeCart(Cart cart, boolean fullResponse) {
+        if (fullResponse) {
+            return toResponse(cart);
+        }
+
+        cart.updateActivity();
+        Cart savedCart = cartRepository.saveAndFlush(cart);
+        stockReservationService.touchCart(savedCart.getId());
+
+        UUID cartId = savedCart.getId();
+        long version = savedCart.getVersion();
+        afterCommit(() -> cartSnapshotStore.invalidate(cartId, version));
+        return null;
+    }
+
+    private ItemChange guestItemChange(Cart cart, CartEvent delta, boolean fullResponse) {
+        publishEvent(delta);
+        return new ItemChange(fullResponse ? CartResponse.from(cart) : null, delta);
+    }
+
+    // Snapshot of a stored cart as read, published right away (a concurrent newer one wins the CAS)
+    private CartSnapshot rebuildSnapshot(UUID cartId) {
+        logger.debug("Rebuilding cart snapshot: {}", cartId);
+        Optional<Cart> guestCart = guestCartStore.findById(cartId);
+        if (guestCart.isPresent()) {
+            return new CartSnapshot(cartId, null, null, writeJson(CartResponse.from(guestCart.get())));
+        }
+
+        Optional<Cart> storedCart = cartRepository.findById(cartId);
+        if (storedCart.isEmpty()) {
+            Cart virtualCart = virtualCartRegistry.findById(cartId)
+                    .orElseThrow(() -> new CartServiceException("Cart not found with ID: " + cartId));
+            return new CartSnapshot(cartId, null, virtualCart.getUserId(), writeJson(toVirtualResponse(virtualCart)));
+        }
+
+        return storeSnapshot(storedCart.get());
+    }
+
+    private CartSnapshot storedSnapshotForUser(UUID userId) {
+        UUID cartId = cartSnapshotStore.findCartIdByUser(userId);
+        return cartId != null ? cartSnapshotStore.get(cartId) : null;
+    }
+
+    private CartSnapshot rebuildSnapshotForUser(UUID userId) {
+        logger.debug("Rebuilding cart snapshot for user: {}", userId);
+        Optional<Cart> virtualCart = virtualCartRegistry.findByUserId(userId);
+        if (virtualCart.isEmpty()) {
+            Optional<Cart> existingCart = cartRepository.findActiveCartByUserId(userId);
+            if (existingCart.isPresent()) {
+                return storeSnapshot(existingCart.get());
+            }
+            virtualCart = Optional.of(virtualCartRegistry.register(userId, null));
+        }
+        return new CartSnapshot(virtualCart.get().getId(), null, userId, writeJson(toVirtualResponse(virtualCart.get())));
+    }
+
+    private CartSnapshot storeSnapshot(Cart cart) {
+        if (checkPriceOnView) {
+            validateCartItems(cart);
+        }
+        CartSnapshot snapshot = new CartSnapshot(cart.getId(), cart.getVersion(), cart.getUserId(),
+                writeJson(CartResponse.from(cart)));
+        cartSnapshotStore.put(snapshot, cart.getStatus() == Cart.CartStatus.ACTIVE);
+        return snapshot;
+    }
+
+    // Notify event stream subscribers once the change has committed
+    private void publishEvent(CartEvent event) {
+        afterCommit(() -> cartEventService.publish(event));
+    }
+
+    // Event for an item changed in place; an item that ended up removed is reported as such
+    private CartEvent itemEvent(Cart cart, UUID itemId) {
+        return cart.getItems().stream()
+                .filter(item -> item.getId().equals(itemId) && !item.isRemoved())
+                .findFirst()
+                .map(item -> CartEvent.itemChanged(CartEvent.Type.ITEM_UPDATED, cart, item))
+                .orElseGet(() -> CartEvent.itemRemoved(cart, itemId));
+    }
+
+    // Projections are not stored: they are cheap to build and keyed by arbitrary fieldsets
+    private CartSnapshot projectedSnapshot(Cart cart, UUID userId, boolean virtual, CartProjection projection) {
+        CartResponse response = CartResponse.from(cart, projection);
+        response.setIsVirtual(virtual);
+        return new CartSnapshot(cart.getId(), cart.getVersion(), userId,
+                cartProjectionWriters.write(response, projection));
+    }
+
+    private CartResponse toVirtualResponse(Cart virtualCart) {
+        CartResponse response = CartResponse.from(virtualCart);
+        response.setIsVirtual(true);
+        return response;
+    }
+
+    // Write a Redis guest cart to Postgres; the Redis copy is dropped once the transaction commits
+    private Cart promoteGuestCart(Cart guestCart) {
+        logger.info("Promoting guest cart to database: {}", guestCart.getId());
+
+        cartBulkWriter.insertCartWithItems(guestCart);
+        afterCommit(() -> guestCartStore.delete(guestCart));
+
+        return cartRepository.findById(guestCart.getId())
+                .orElseThrow(() -> new CartServiceException("Cart not found after promotion"));
+    }
+
+    private Cart createGuestCart(CartRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        Cart cart = new Cart(null, request.getSessionId());
+        applyCartRequest(cart, request);
+        cart.setId(UUID.randomUUID());
+        cart.setCreatedAt(now);
+        cart.setUpdatedAt(now);
+
+        guestCartStore.save(cart, List.of());
+        logger.info("Guest cart created in Redis: {}", cart.getId());
+        return cart;
+    }
+
+    private Cart addItemToGuestCart(Cart cart, AddItemRequest request) {
+        validateCartLimits(cart, request.getQuantity());
+
+        CartItem item = cart.findItemByProductId(request.getProductId());
+        if (item != null) {
+            int newQuantity = item.getQuantity() + request.getQuantity();
+            if (newQuantity > maxQuantityPerItem) {
+                throw new CartServiceException("Maximum quantity per item exceeded: " + maxQuantityPerItem);
+            }
+            cartItemService.checkStock(item.getProductId(), newQuantity);
+            item.setQuantity(newQuantity);
+            item.clearStockRejection();
+        } else {
+            item = cartItemService.buildCartItem(cart, request);
+            item.setId(UUID.randomUUID());
+            item.setAddedAt(LocalDateTime.now());
+            cart.addItem(item);
+        }
+
+        saveGuestCart(cart, item);
+        stockReservationService.hold(cart.getId(), item.getId(), item.getProductId(), item.getQuantity());
+        return cart;
+    }
+
+    private Cart updateGuestCartItem(Cart cart, UUID itemId, UpdateItemRequest request) {
+        CartItem item = findGuestCartItem(cart, itemId);
+
+        if (request.getQuantity() > maxQuantityPerItem) {
+            throw new CartServiceException("Maximum quantity per item exceeded: " + maxQuantityPerItem);
+        }
+        cartItemService.checkStock(item.getProductId(), request.getQuantity());
+
+        item.setQuantity(request.getQuantity());
+        item.clearStockRejection();
+        if (request.getSpecialInstructions() != null) {
+            item.setSpecialInstructions(request.getSpecialInstructions());
+        }
+        if (request.getMetadata() != null) {
+            item.setMetadata(convertMetadataToJson(request.getMetadata()));
+        }
+
+        saveGuestCart(cart, item);
+        if (item.isActive()) {
+            stockReservationService.hold(cart.getId(), itemId, item.getProductId(), item.getQuantity());
+        }
+        return cart;
+    }
+
+    private Cart removeGuestCartItem(Cart cart, UUID itemId) {
+        CartItem item = findGuestCartItem(cart, itemId);
+        item.remove();
+
+        saveGuestCart(cart, item);
+        stockReservationService.release(itemId);
+        return cart;
+    }
+
+    private Cart clearGuestCart(Cart cart) {
+        List<CartItem> removed = cart.getItems().stream()
+                .filter(item -> !item.isRemoved())
+                .toList();
+        removed.forEach(CartItem::remove);
+
+        saveGuestCart(cart, removed.toArray(new CartItem[0]));
+        stockReservationService.releaseCart(cart.getId());
+        return cart;
+    }
+
+    private CartItem findGuestCartItem(Cart cart, UUID itemId) {
+        return cart.getItems().stream()
+                .filter(item -> item.getId().equals(itemId) && !item.isRemoved())
+                .findFirst()
+                .orElseThrow(() -> new CartServiceException("Cart item not found with ID: " + itemId));
+    }
+
+    private void saveGuestCart(Cart cart, CartItem... changedItems) {
+        LocalDateTime now = LocalDateTime.now();
+        for (CartItem item : changedItems) {
+            item.setUpdatedAt(now);
+        }
+        cart.updateTotals();
+        cart.updateActivity();
+        cart.setUpdatedAt(now);
+        if (!guestCartStore.save(cart, List.of(changedItems))) {
+            throw new GuestCartConflictException(cart.getId());
+        }
+        stockReservationService.touchCart(cart.getId());
+    }
+
+    // Apply a change to the Redis guest cart with the given id; null if it is not one (any more).
+    // Saves are version checked, so when another request wrote the cart in between, the change
+    // starts over on a fresh copy.
+    private <T> T changeGuestCart(UUID cartId, Function<Cart, T> change) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<Cart> guestCart = guestCartStore.findById(cartId);
+            if (guestCart.isEmpty()) {
+                return null;
+            }
+            try {
+                return change.apply(guestCart.get());
+            } catch (GuestCartConflictException e) {
+                if (attempt == GUEST_SAVE_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Guest cart {} changed concurrently, retrying", cartId);
+            }
+        }
+    }
+
+    // Run once the current transaction has committed (immediately without one)
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void applyCartRequest(Cart cart, CartRequest request) {
+        cart.setCustomerName(request.getCustomerName());
+        cart.setCustomerEmail(request.getCustomerEmail());
+        cart.setCurrencyCode(request.getCurrencyCode());
+        cart.setDiscountCode(request.getDiscountCode());
+        cart.setSpecialInstructions(request.getSpecialInstructions());
+        cart.setDeliveryType(request.getDeliveryType());
+        cart.setDeliveryAddress(request.getDeliveryAddress());
+        cart.setSource(request.getSource());
+        cart.setDeviceType(request.getDeviceType());
+        cart.setUserAgent(request.getUserAgent());
+
+        if (request.getMetadata() != null) {
+            cart.setMetadata(convertMetadataToJson(request.getMetadata()));
+        }
+    }
+
+    // Recompute totals in SQL after a bulk item operation and reload the cart
+    private Cart recalculateTotals(UUID cartId, LocalDateTime createdAt) {
+        LocalDateTime now = LocalDateTime.now();
+        cartRepository.recalculateTotals(cartId, createdAt, now,
+                now.plusHours(Cart.GUEST_CART_TTL_HOURS), now.plusDays(Cart.USER_CART_TTL_DAYS));
+        return cartRepository.findByIdAndCreatedAt(cartId, createdAt)
+                .orElseThrow(() -> new CartServiceException("Cart not found after update"));
+    }
+
     private void validateCartLimits(Cart cart, int additionalQuantity) {
         if (cart.getItemCount() >= maxItemsPerCart) {
             throw new CartServiceException("Maximum items per cart exceeded: " + maxItemsPerCart);
@@ -585,6 +1279,14 @@ public class CartService {
         }
     }
 
+    private String writeJson(CartResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (Exception e) {
+            throw new CartServiceException("Failed to serialize cart: " + e.getMessage());
+        }
+    }
+
     private double calculateConversionRate(Object[] conversionRate) {
         if (conversionRate == null || conversionRate.length < 2) return 0.0;
 
@@ -593,4 +1295,19 @@ public class CartService {
 
         return total > 0 ? (converted.doubleValue() / total.doubleValue()) * 100 : 0.0;
     }
+
+    // A guest cart save lost against a concurrent write (GuestCartStore.save)
+    private static class GuestCartConflictException extends CartServiceException {
+        GuestCartConflictException(UUID cartId) {
+            super("Guest cart was changed concurrently: " + cartId);
+        }
+    }
+
+    // Result of an item mutation: the full response (null in delta mode) and the delta
+    private record ItemChange(CartResponse response, CartEvent delta) {
+    }
+
+    // Result of a batch of item updates: the full response (null in delta mode) and one delta per item
+    public record ItemUpdates(CartResponse response, Map<UUID, CartEvent> deltas) {
+    }
 }
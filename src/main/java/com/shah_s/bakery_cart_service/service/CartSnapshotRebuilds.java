@@ -0,0 +1,125 @@
+package com.shah_s.bakery_cart_service.service;
+
+import com.shah_s.bakery_cart_service.dto.CartSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Stampede protection for read-model misses, as CoalescingCache does for @Cacheable(sync = true):
+// - concurrent misses of a key on one node share a single rebuild (in-flight future per key)
+// - across nodes, the rebuild runs under a short Redis lock; other nodes poll the snapshot store
+//   meanwhile and rebuild themselves once the lock is gone without a stored snapshot (carts that are
+//   not stored, such as virtual ones) or has timed out
+@Service
+public class CartSnapshotRebuilds {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartSnapshotRebuilds.class);
+
+    private static final String LOCK_PREFIX = "cart-snapshot-rebuild:";
+
+    // Release the lock only if it is still ours (it may have expired and been taken over)
+    private static final RedisScript<Long> UNLOCK = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ConcurrentHashMap<String, CompletableFuture<CartSnapshot>> rebuilds = new ConcurrentHashMap<>();
+
+    @Value("${cart.cache.lock-ttl-ms:5000}")
+    private Long lockTtlMillis;
+
+    @Value("${cart.cache.lock-poll-ms:50}")
+    private Long lockPollMillis;
+
+    public CartSnapshotRebuilds(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    // Snapshot for the key: the stored one if another caller put it meanwhile, otherwise rebuilt once
+    public CartSnapshot rebuild(String key, Supplier<CartSnapshot> stored, Supplier<CartSnapshot> rebuild) {
+        CompletableFuture<CartSnapshot> own = new CompletableFuture<>();
+        CompletableFuture<CartSnapshot> inFlight = rebuilds.putIfAbsent(key, own);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+
+        try {
+            CartSnapshot snapshot = rebuildOnce(key, stored, rebuild);
+            own.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            rebuilds.remove(key, own);
+        }
+    }
+
+    // Private helper methods
+    private CartSnapshot rebuildOnce(String key, Supplier<CartSnapshot> stored, Supplier<CartSnapshot> rebuild) {
+        String lockKey = LOCK_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + lockTtlMillis;
+
+        while (true) {
+            if (tryLock(lockKey, token)) {
+                try {
+                    // Put by another node between our miss and the lock
+                    CartSnapshot snapshot = stored.get();
+                    return snapshot != null ? snapshot : rebuild.get();
+                } finally {
+                    unlock(lockKey, token);
+                }
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                // The other node failed or is too slow: rebuild without the lock
+                logger.debug("Snapshot rebuild lock wait timed out for {}", key);
+                return rebuild.get();
+            }
+            try {
+                Thread.sleep(lockPollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return rebuild.get();
+            }
+
+            CartSnapshot snapshot = stored.get();
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+    }
+
+    private CartSnapshot join(CompletableFuture<CartSnapshot> rebuild) {
+        try {
+            return rebuild.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean tryLock(String lockKey, String token) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(lockKey, token, Duration.ofMillis(lockTtlMillis)));
+    }
+
+    private void unlock(String lockKey, String token) {
+        redisTemplate.execute(UNLOCK, List.of(lockKey), token);
+    }
+}
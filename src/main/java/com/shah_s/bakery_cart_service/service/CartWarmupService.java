@@ -0,0 +1,206 @@
+package com.shah_s.bakery_cart_service.service;
+
+import com.shah_s.bakery_cart_service.client.ProductServiceClient;
+import com.shah_s.bakery_cart_service.repository.CartItemRepository;
+import com.shah_s.bakery_cart_service.repository.CartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Warm-up before the instance reports ready. Runs as an ApplicationRunner, so the readiness state
+// (actuator health, and Eureka status through eureka.client.healthcheck) only turns to accepting
+// traffic once it is done or has run out of time:
+// - snapshots of carts active in the last N minutes are written, loaded in batches with their items
+// - the most popular products are fetched in one batched call into the product-info cache
+// - synthetic read requests against this instance warm the web, JSON and Redis paths for the JIT
+@Service
+public class CartWarmupService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartWarmupService.class);
+
+    private final CartService cartService;
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductServiceClient productServiceClient;
+    private final CacheManager cacheManager;
+    private final Environment environment;
+
+    @Value("${cart.warmup.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${cart.warmup.active-within-minutes:30}")
+    private Integer activeWithinMinutes;
+
+    @Value("${cart.warmup.max-carts:2000}")
+    private Integer maxCarts;
+
+    @Value("${cart.warmup.batch-size:200}")
+    private Integer batchSize;
+
+    @Value("${cart.warmup.top-products:100}")
+    private Integer topProducts;
+
+    @Value("${cart.warmup.synthetic-requests:2000}")
+    private Integer syntheticRequests;
+
+    @Value("${cart.warmup.concurrency:4}")
+    private Integer concurrency;
+
+    @Value("${cart.warmup.max-duration-seconds:60}")
+    private Integer maxDurationSeconds;
+
+    public CartWarmupService(CartService cartService, CartRepository cartRepository,
+                             CartItemRepository cartItemRepository, ProductServiceClient productServiceClient,
+                             CacheManager cacheManager, Environment environment) {
+        this.cartService = cartService;
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productServiceClient = productServiceClient;
+        this.cacheManager = cacheManager;
+        this.environment = environment;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) return;
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(maxDurationSeconds);
+        logger.info("Starting warm-up (at most {}s, concurrency {})", maxDurationSeconds, concurrency);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<UUID> cartIds = preloadCarts(executor, deadline);
+            preloadProducts();
+            sendSyntheticRequests(executor, cartIds, deadline);
+        } catch (TimeoutException e) {
+            logger.warn("Warm-up stopped after {}s, reporting ready anyway", maxDurationSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Warm-up failed, reporting ready anyway: {}", e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        logger.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // Private helper methods
+    private List<UUID> preloadCarts(ExecutorService executor, long deadline) throws Exception {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(activeWithinMinutes);
+        List<UUID> cartIds = cartRepository.findRecentlyActiveCartIds(since, PageRequest.of(0, maxCarts));
+
+        AtomicInteger written = new AtomicInteger();
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < cartIds.size(); from += batchSize) {
+            List<UUID> batch = cartIds.subList(from, Math.min(from + batchSize, cartIds.size()));
+            batches.add(executor.submit(() -> written.addAndGet(cartService.preloadCartSnapshots(batch))));
+        }
+        await(batches, deadline);
+
+        logger.info("Warm-up: {} recently active carts, {} snapshots written", cartIds.size(), written.get());
+        return cartIds;
+    }
+
+    // Same cache and key as ProductServiceClient.getProductById
+    private void preloadProducts() {
+        if (topProducts <= 0) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> productIds = cartItemRepository
+                .getMostPopularProducts(now.minusMinutes(activeWithinMinutes), now, PageRequest.of(0, topProducts))
+                .stream()
+                .map(row -> (UUID) row[0])
+                .toList();
+        if (productIds.isEmpty()) return;
+
+        Cache cache = cacheManager.getCache("product-info");
+        if (cache == null) return;
+
+        try {
+            int cached = 0;
+            for (Map<String, Object> product : productServiceClient.getProductsByIds(productIds)) {
+                Object id = product.get("id");
+                if (id != null) {
+                    cache.put(UUID.fromString(id.toString()), product);
+                    cached++;
+                }
+            }
+            logger.info("Warm-up: {} popular products cached", cached);
+        } catch (Exception e) {
+            logger.warn("Warm-up: failed to preload popular products: {}", e.getMessage());
+        }
+    }
+
+    // Read-only requests spread over the preloaded carts (or the health endpoint when there are none)
+    private void sendSyntheticRequests(ExecutorService executor, List<UUID> cartIds, long deadline) throws Exception {
+        String port = environment.getProperty("local.server.port");
+        if (syntheticRequests <= 0 || port == null) return; // No web server (e.g. mock MVC tests)
+
+        String baseUrl = "http://localhost:" + port + "/api/carts/";
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(executor.submit(() -> {
+                int n;
+                while ((n = next.getAndIncrement()) < syntheticRequests && !Thread.currentThread().isInterrupted()) {
+                    String path = cartIds.isEmpty() ? "health"
+                            : cartIds.get(n % cartIds.size()) + (n % 2 == 0 ? "" : "?fields=totalAmount,itemCount");
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                            .timeout(Duration.ofSeconds(5))
+                            .header("X-User-Role", "ADMIN")
+                            .GET()
+                            .build();
+                    try {
+                        if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 300) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        await(workers, deadline);
+
+        logger.info("Warm-up: {} synthetic requests sent, {} failed", Math.min(next.get(), syntheticRequests), failed.get());
+    }
+
+    private void await(List<Future<?>> futures, long deadline) throws Exception {
+        for (Future<?> future : futures) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) throw new TimeoutException();
+            future.get(remaining, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.shah_s.bakery_cart_service.service;
+
+import com.shah_s.bakery_cart_service.config.CartPreconditions;
+import com.shah_s.bakery_cart_service.dto.CartEvent;
+import com.shah_s.bakery_cart_service.dto.CartResponse;
+import com.shah_s.bakery_cart_service.dto.UpdateItemRequest;
+import com.shah_s.bakery_cart_service.exception.CartPreconditionFailedException;
+import com.shah_s.bakery_cart_service.exception.CartServiceException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Optional coalescing of item quantity updates (PUT /api/carts/{cartId}/items/{itemId}), for
+// quantity steppers sending a request per click. With cart.coalescing.enabled:
+// - the first update of a cart opens a batch and waits cart.coalescing.window-ms; updates of the same
+//   cart arriving meanwhile join it (later values win per item, quantities are absolute)
+// - the batch is applied by that first caller in one CartService.updateCartItems transaction, and
+//   every caller answers with the resulting state
+// - batches of one cart are applied in arrival order; if a batch fails, its items are retried one
+//   by one so a single bad update (stock, removed item) only fails its own callers
+// - updates carrying If-Match (CartPreconditions) are not coalesced: the precondition is the
+//   caller's own and is checked against its own write, so they go to CartService directly. A failed
+//   precondition is never retried item by item, it fails the whole batch.
+// Open batches live in per-stripe maps keyed by cart id, so different carts never share a batch and
+// only meet on a stripe lock held for a map lookup.
+@Service
+public class CartWriteCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteCoalescer.class);
+
+    private final CartService cartService;
+    private final DistributionSummary batchRequests;
+    private Stripe[] stripes;
+
+    @Value("${cart.coalescing.enabled:false}")
+    private Boolean enabled;
+
+    @Value("${cart.coalescing.window-ms:25}")
+    private Long windowMs;
+
+    @Value("${cart.coalescing.stripes:64}")
+    private Integer stripeCount;
+
+    public CartWriteCoalescer(CartService cartService, MeterRegistry meterRegistry) {
+        this.cartService = cartService;
+        this.batchRequests = DistributionSummary.builder("cart.coalescing.batch.requests")
+                .description("Item update requests applied per coalesced batch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void createStripes() {
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public CartResponse updateCartItem(UUID cartId, UUID itemId, UpdateItemRequest request) {
+        if (!enabled || CartPreconditions.pending(cartId)) {
+            return cartService.updateCartItem(cartId, itemId, request);
+        }
+        return submit(cartId, itemId, request, true).response();
+    }
+
+    public CartEvent updateCartItemDelta(UUID cartId, UUID itemId, UpdateItemRequest request) {
+        if (!enabled || CartPreconditions.pending(cartId)) {
+            return cartService.updateCartItemDelta(cartId, itemId, request);
+        }
+        return submit(cartId, itemId, request, false).deltas().get(itemId);
+    }
+
+    // Private helper methods
+    private CartService.ItemUpdates submit(UUID cartId, UUID itemId, UpdateItemRequest request, boolean fullResponse) {
+        Stripe stripe = stripes[Math.floorMod(cartId.hashCode(), stripes.length)];
+
+        Batch batch;
+        boolean leader = false;
+        CompletableFuture<CartService.ItemUpdates> result;
+        synchronized (stripe) {
+            batch = stripe.batches.get(cartId);
+            if (batch == null || batch.closed) {
+                batch = new Batch(batch);
+                stripe.batches.put(cartId, batch);
+                leader = true;
+            }
+            result = batch.add(itemId, request, fullResponse);
+        }
+
+        if (leader) {
+            lead(stripe, cartId, batch);
+        }
+        return await(result);
+    }
+
+    private void lead(Stripe stripe, UUID cartId, Batch batch) {
+        try {
+            Thread.sleep(windowMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Apply what has been collected so far
+        }
+        synchronized (stripe) {
+            batch.closed = true;
+        }
+
+        try {
+            if (batch.previous != null) {
+                batch.previous.done.join();
+                batch.previous = null; // Keep only the batches still pending reachable
+            }
+            apply(cartId, batch);
+        } finally {
+            // No-op for results already completed; releases the callers if applying threw an Error
+            CartServiceException notApplied = new CartServiceException("Failed to update cart item: update not applied");
+            batch.results.values().forEach(result -> result.completeExceptionally(notApplied));
+            batch.done.complete(null);
+            synchronized (stripe) {
+                stripe.batches.remove(cartId, batch);
+            }
+        }
+    }
+
+    private void apply(UUID cartId, Batch batch) {
+        batchRequests.record(batch.requests);
+        try {
+            CartService.ItemUpdates updates = cartService.updateCartItems(cartId, batch.updates, batch.fullResponse);
+            batch.results.values().forEach(result -> result.complete(updates));
+            return;
+        } catch (RuntimeException e) {
+            if (batch.updates.size() == 1 || e instanceof CartPreconditionFailedException) {
+                batch.results.values().forEach(result -> result.completeExceptionally(e));
+                return;
+            }
+            logger.debug("Coalesced update of cart {} failed, applying its {} items one by one: {}",
+                    cartId, batch.updates.size(), e.getMessage());
+        }
+
+        batch.updates.forEach((itemId, request) -> {
+            CompletableFuture<CartService.ItemUpdates> result = batch.results.get(itemId);
+            try {
+                result.complete(cartService.updateCartItems(cartId, Map.of(itemId, request), batch.fullResponse));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private CartService.ItemUpdates await(CompletableFuture<CartService.ItemUpdates> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Later values replace earlier ones; instructions and metadata are kept unless sent again
+    private static UpdateItemRequest merge(UpdateItemRequest earlier, UpdateItemRequest later) {
+        UpdateItemRequest merged = new UpdateItemRequest(later.getQuantity());
+        merged.setSpecialInstructions(later.getSpecialInstructions() != null
+                ? later.getSpecialInstructions() : earlier.getSpecialInstructions());
+        merged.setMetadata(later.getMetadata() != null ? later.getMetadata() : earlier.getMetadata());
+        return merged;
+    }
+
+    // Latest batch per cart: open (collecting), or closed and being applied by its leader
+    private static final class Stripe {
+        private final Map<UUID, Batch> batches = new HashMap<>();
+    }
+
+    // Mutated under its stripe lock until closed, read only by its leader afterwards
+    private static final class Batch {
+        private Batch previous;
+        private final Map<UUID, UpdateItemRequest> updates = new LinkedHashMap<>();
+        private final Map<UUID, CompletableFuture<CartService.ItemUpdates>> results = new HashMap<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private boolean fullResponse;
+        private boolean closed;
+        private int requests;
+
+        private Batch(Batch previous) {
+            this.previous = previous;
+        }
+
+        private CompletableFuture<CartService.ItemUpdates> add(UUID itemId, UpdateItemRequest request, boolean full) {
+            updates.merge(itemId, request, CartWriteCoalescer::merge);
+            fullResponse |= full;
+            requests++;
+            return results.computeIfAbsent(itemId, id -> new CompletableFuture<>());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.shah_s.bakery_cart_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Probes the database and Redis on its own schedule (one thread, cart.health.sample-interval-ms) and
+// keeps the latest result in memory. Health endpoints and actuator indicators read the samples, so
+// probe traffic no longer grows with the number of health checks:
+// - database: Connection.isValid on a pooled connection
+// - redis: PING (nothing is written)
+// Probe latencies are recorded in health.probe.latency{dependency, outcome}. A sample older than
+// cart.health.stale-after-ms (a probe hanging) is reported as DOWN.
+@Service
+public class HealthSampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthSampler.class);
+
+    public static final String DATABASE = "database";
+    public static final String REDIS = "redis";
+
+    private final DataSource dataSource;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private ScheduledExecutorService sampler;
+
+    private volatile Sample database = Sample.pending();
+    private volatile Sample redis = Sample.pending();
+    private volatile String databaseUrl;
+
+    @Value("${cart.health.sample-interval-ms:5000}")
+    private Long sampleIntervalMs;
+
+    @Value("${cart.health.stale-after-ms:30000}")
+    private Long staleAfterMs;
+
+    @Value("${cart.health.database-timeout-seconds:2}")
+    private Integer databaseTimeoutSeconds;
+
+    public HealthSampler(DataSource dataSource, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void startSampling() {
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleWithFixedDelay(this::sample, 0, sampleIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopSampling() {
+        sampler.shutdownNow();
+    }
+
+    public Sample getDatabase() {
+        return current(database);
+    }
+
+    public Sample getRedis() {
+        return current(redis);
+    }
+
+    // JDBC URL of the database, as reported by the driver on the first successful probe
+    public String getDatabaseUrl() {
+        return databaseUrl;
+    }
+
+    // Private helper methods
+    private void sample() {
+        database = probe(DATABASE, () -> {
+            try (Connection connection = dataSource.getConnection()) {
+                if (databaseUrl == null) {
+                    databaseUrl = connection.getMetaData().getURL();
+                }
+                if (!connection.isValid(databaseTimeoutSeconds)) {
+                    throw new IllegalStateException("Connection validation failed");
+                }
+            }
+        });
+        redis = probe(REDIS, () -> {
+            String pong = redisTemplate.execute((RedisCallback<String>) RedisConnection::ping);
+            if (!"PONG".equalsIgnoreCase(pong)) {
+                throw new IllegalStateException("Unexpected PING reply: " + pong);
+            }
+        });
+    }
+
+    private Sample probe(String dependency, Probe probe) {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            probe.run();
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            logger.warn("Health probe of {} failed: {}", dependency, error);
+        }
+        long nanos = System.nanoTime() - start;
+
+        Timer.builder("health.probe.latency")
+                .tag("dependency", dependency)
+                .tag("outcome", error == null ? "success" : "error")
+                .description("Latency of the background health probes")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+
+        return new Sample(error == null, TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0, error, Instant.now());
+    }
+
+    private Sample current(Sample sample) {
+        if (sample.sampledAt() != null
+                && sample.sampledAt().isBefore(Instant.now().minusMillis(staleAfterMs))) {
+            return new Sample(false, sample.latencyMs(), "No probe result since " + sample.sampledAt(), sample.sampledAt());
+        }
+        return sample;
+    }
+
+    @FunctionalInterface
+    private interface Probe {
+        void run() throws Exception;
+    }
+
+    // Result of the latest probe; sampledAt is null until the first probe has finished
+    public record Sample(boolean up, double latencyMs, String error, Instant sampledAt) {
+
+        static Sample pending() {
+            return new Sample(false, 0, "Not probed yet", null);
+        }
+    }
+}
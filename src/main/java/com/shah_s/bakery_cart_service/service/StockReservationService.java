@@ -0,0 +1,238 @@
+package com.shah_s.bakery_cart_service.service;
+
+import com.shah_s.bakery_cart_service.client.ProductServiceClient;
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import com.shah_s.bakery_cart_service.repository.CartItemRepository;
+import com.shah_s.bakery_cart_service.repository.CartRepository;
+import com.shah_s.bakery_cart_service.repository.CartSnapshotStore;
+import com.shah_s.bakery_cart_service.repository.GuestCartStore;
+import com.shah_s.bakery_cart_service.repository.StockHoldStore;
+import feign.FeignException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Holds product stock for cart items. Holds are kept in Redis (StockHoldStore), so they survive
+// restarts and are shared by all instances; hold changes become per-product deltas that are
+// coalesced and flushed once per window. A reserve that product-service refuses is undone and the
+// affected cart items are flagged as unavailable, which blocks their checkout.
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final String INSUFFICIENT_STOCK_MESSAGE = "Insufficient stock";
+    private static final int GUEST_SAVE_ATTEMPTS = 3;
+
+    private final ProductServiceClient productServiceClient;
+    private final StockHoldStore stockHoldStore;
+    private final CartItemRepository cartItemRepository;
+    private final CartRepository cartRepository;
+    private final GuestCartStore guestCartStore;
+    private final CartSnapshotStore cartSnapshotStore;
+
+    @Value("${cart.reservation.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${cart.reservation.hold-minutes:30}")
+    private Integer holdMinutes;
+
+    @Value("${cart.reservation.sweep-batch-size:500}")
+    private Integer sweepBatchSize;
+
+    public StockReservationService(ProductServiceClient productServiceClient, StockHoldStore stockHoldStore,
+                                   CartItemRepository cartItemRepository, CartRepository cartRepository,
+                                   GuestCartStore guestCartStore, CartSnapshotStore cartSnapshotStore) {
+        this.productServiceClient = productServiceClient;
+        this.stockHoldStore = stockHoldStore;
+        this.cartItemRepository = cartItemRepository;
+        this.cartRepository = cartRepository;
+        this.guestCartStore = guestCartStore;
+        this.cartSnapshotStore = cartSnapshotStore;
+    }
+
+    // Hold the given quantity of a product for a cart item (absolute, replaces any previous hold)
+    public void hold(UUID cartId, UUID itemId, UUID productId, int quantity) {
+        if (!enabled || itemId == null) return;
+
+        afterCommit(() -> stockHoldStore.hold(cartId, itemId, productId, quantity,
+                Instant.now().plus(Duration.ofMinutes(holdMinutes)).toEpochMilli()));
+    }
+
+    // Cart activity: keep all of the cart's holds for another hold period, not only the changed item's
+    public void touchCart(UUID cartId) {
+        if (!enabled || cartId == null) return;
+
+        afterCommit(() -> stockHoldStore.extendCart(cartId,
+                Instant.now().plus(Duration.ofMinutes(holdMinutes)).toEpochMilli()));
+    }
+
+    // Release the hold of a single cart item
+    public void release(UUID itemId) {
+        if (!enabled || itemId == null) return;
+
+        afterCommit(() -> stockHoldStore.release(itemId));
+    }
+
+    // Release every hold of a cart (clear, abandon, delete, merge source)
+    public void releaseCart(UUID cartId) {
+        if (!enabled || cartId == null) return;
+
+        afterCommit(() -> stockHoldStore.dropCart(cartId, true));
+    }
+
+    public void releaseCarts(Collection<UUID> cartIds) {
+        if (!enabled) return;
+
+        afterCommit(() -> cartIds.forEach(cartId -> stockHoldStore.dropCart(cartId, true)));
+    }
+
+    // Forget the holds of a converted cart without releasing: the order now owns the stock
+    public void commitCart(UUID cartId) {
+        if (!enabled || cartId == null) return;
+
+        afterCommit(() -> stockHoldStore.dropCart(cartId, false));
+    }
+
+    // Release holds whose TTL has passed, oldest first
+    @Scheduled(fixedDelayString = "${cart.reservation.sweep-interval-ms:10000}")
+    public void releaseExpiredHolds() {
+        if (!enabled) return;
+
+        long now = Instant.now().toEpochMilli();
+        int released = 0;
+        List<UUID> expired;
+        do {
+            expired = stockHoldStore.findExpired(now, sweepBatchSize);
+            for (UUID itemId : expired) {
+                // Holds refreshed since the lookup stay
+                if (stockHoldStore.releaseIfExpired(itemId, now)) {
+                    released++;
+                }
+            }
+        } while (expired.size() == sweepBatchSize);
+
+        if (released > 0) {
+            logger.info("Released {} expired stock holds", released);
+        }
+    }
+
+    // Flush coalesced deltas: one reserve/release call per product per window
+    @Scheduled(fixedDelayString = "${cart.reservation.flush-interval-ms:250}")
+    public void flushPendingDeltas() {
+        if (!enabled) return;
+
+        for (UUID productId : stockHoldStore.findProductsWithPendingDeltas()) {
+            StockHoldStore.PendingDelta pending = stockHoldStore.takePending(productId);
+            if (pending.delta() == 0) continue;
+
+            try {
+                if (pending.delta() > 0) {
+                    productServiceClient.reserveStock(productId, Map.of("quantity", pending.delta()));
+                } else {
+                    productServiceClient.releaseStock(productId, Map.of("quantity", -pending.delta()));
+                }
+            } catch (Exception e) {
+                if (isRetryable(e)) {
+                    logger.warn("Failed to flush stock delta {} for product {}, retrying: {}",
+                            pending.delta(), productId, e.getMessage());
+                    // Put it back so the next window retries it together with newer deltas
+                    stockHoldStore.restorePending(pending);
+                } else if (pending.delta() > 0) {
+                    logger.warn("Stock reserve of {} for product {} refused: {}", pending.delta(), productId, e.getMessage());
+                    flagRejectedItems(stockHoldStore.rejectPending(pending));
+                } else {
+                    logger.warn("Stock release of {} for product {} refused, dropped: {}",
+                            -pending.delta(), productId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Private helper methods
+
+    // Unreachable or failing product-service, timeouts and throttling are retried; other client
+    // errors (insufficient stock, unknown product) will not succeed on a retry
+    private boolean isRetryable(Exception e) {
+        if (!(e instanceof FeignException feignException)) return true;
+        int status = feignException.status();
+        return status < 400 || status >= 500 || status == 408 || status == 429;
+    }
+
+    // Mark the items whose reserve was refused, so the cart shows the stock issue and checkout stops
+    private void flagRejectedItems(Map<UUID, UUID> itemCarts) {
+        List<UUID> storedItems = new ArrayList<>();
+        Set<UUID> storedCarts = new HashSet<>();
+        Map<UUID, List<UUID>> guestItems = new HashMap<>();
+        for (Map.Entry<UUID, UUID> itemCart : itemCarts.entrySet()) {
+            UUID cartId = itemCart.getValue();
+            if (cartId != null && guestCartStore.isEnabled() && guestCartStore.findById(cartId).isPresent()) {
+                guestItems.computeIfAbsent(cartId, id -> new ArrayList<>()).add(itemCart.getKey());
+            } else {
+                storedItems.add(itemCart.getKey());
+                if (cartId != null) {
+                    storedCarts.add(cartId);
+                }
+            }
+        }
+
+        if (!storedItems.isEmpty()) {
+            // Bumps the cart versions. The snapshots are tombstoned at the version read back after the
+            // update (ours or newer), so a snapshot built from before the flag cannot be stored again.
+            cartItemRepository.markStockRejected(storedItems, INSUFFICIENT_STOCK_MESSAGE, LocalDateTime.now());
+            storedCarts.forEach(this::invalidateSnapshot);
+        }
+        // Guest carts are read from Redis directly and have no stored snapshot
+        guestItems.forEach(this::flagGuestItems);
+    }
+
+    private void invalidateSnapshot(UUID cartId) {
+        cartRepository.findVersionById(cartId).ifPresent(version -> cartSnapshotStore.invalidate(cartId, version));
+    }
+
+    // Guest carts are saved with a version check: re-read and flag again if another write got in
+    // between. A cart promoted in the meantime has its items in Postgres.
+    private void flagGuestItems(UUID cartId, List<UUID> itemIds) {
+        for (int attempt = 0; attempt < GUEST_SAVE_ATTEMPTS; attempt++) {
+            Optional<Cart> cart = guestCartStore.findById(cartId);
+            if (cart.isEmpty()) {
+                cartItemRepository.markStockRejected(itemIds, INSUFFICIENT_STOCK_MESSAGE, LocalDateTime.now());
+                invalidateSnapshot(cartId);
+                return;
+            }
+
+            List<CartItem> flagged = cart.get().getItems().stream()
+                    .filter(item -> itemIds.contains(item.getId()))
+                    .toList();
+            flagged.forEach(item -> item.markStockRejected(INSUFFICIENT_STOCK_MESSAGE));
+            if (guestCartStore.save(cart.get(), flagged)) {
+                return;
+            }
+        }
+        logger.warn("Could not flag refused items of guest cart {}: it kept changing", cartId);
+    }
+
+    // Only touch stock once the cart change is durable
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
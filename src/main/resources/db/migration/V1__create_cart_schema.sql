@@ -0,0 +1,111 @@
+-- Cart service schema: native enums, tables and indexes tuned for the hot queries
+
+-- Enum types (may already exist from init-scripts on older dev volumes)
+DO $$
+BEGIN
+    CREATE TYPE cart_status AS ENUM ('ACTIVE', 'SAVED', 'ABANDONED', 'CONVERTED', 'EXPIRED');
+EXCEPTION
+    WHEN duplicate_object THEN NULL;
+END $$;
+
+DO $$
+BEGIN
+    CREATE TYPE cart_item_status AS ENUM ('ACTIVE', 'SAVED_FOR_LATER', 'REMOVED');
+EXCEPTION
+    WHEN duplicate_object THEN NULL;
+END $$;
+
+-- Carts
+CREATE TABLE carts (
+    id                   UUID           NOT NULL PRIMARY KEY,
+    user_id              UUID,
+    session_id           VARCHAR(255),
+    status               cart_status    NOT NULL DEFAULT 'ACTIVE',
+    customer_name        VARCHAR(100),
+    customer_email       VARCHAR(255),
+    subtotal             NUMERIC(12, 2) NOT NULL DEFAULT 0,
+    tax_amount           NUMERIC(10, 2) DEFAULT 0,
+    discount_amount      NUMERIC(10, 2) DEFAULT 0,
+    total_amount         NUMERIC(12, 2) NOT NULL DEFAULT 0,
+    item_count           INTEGER        NOT NULL DEFAULT 0,
+    total_quantity       INTEGER        NOT NULL DEFAULT 0,
+    currency_code        VARCHAR(3),
+    discount_code        VARCHAR(50),
+    special_instructions TEXT,
+    delivery_type        VARCHAR(20),
+    delivery_address     TEXT,
+    created_at           TIMESTAMP(6)   NOT NULL,
+    updated_at           TIMESTAMP(6),
+    expires_at           TIMESTAMP(6),
+    last_activity_at     TIMESTAMP(6),
+    abandoned_at         TIMESTAMP(6),
+    converted_at         TIMESTAMP(6),
+    converted_order_id   UUID,
+    metadata             TEXT,
+    source               VARCHAR(50),
+    device_type          VARCHAR(20),
+    user_agent           TEXT
+);
+
+-- Cart items
+CREATE TABLE cart_items (
+    id                       UUID             NOT NULL PRIMARY KEY,
+    cart_id                  UUID             NOT NULL REFERENCES carts (id) ON DELETE CASCADE,
+    product_id               UUID             NOT NULL,
+    product_sku              VARCHAR(100),
+    product_name             VARCHAR(255)     NOT NULL,
+    product_category         VARCHAR(100),
+    quantity                 INTEGER          NOT NULL,
+    unit_price               NUMERIC(10, 2)   NOT NULL,
+    total_price              NUMERIC(12, 2)   NOT NULL,
+    original_unit_price      NUMERIC(10, 2),
+    status                   cart_item_status NOT NULL DEFAULT 'ACTIVE',
+    special_instructions     TEXT,
+    product_description      TEXT,
+    product_image_url        VARCHAR(500),
+    preparation_time_minutes INTEGER,
+    currency_code            VARCHAR(3),
+    is_available             BOOLEAN,
+    stock_quantity           INTEGER,
+    availability_message     VARCHAR(255),
+    price_changed            BOOLEAN,
+    price_change_amount      NUMERIC(10, 2),
+    added_at                 TIMESTAMP(6)     NOT NULL,
+    updated_at               TIMESTAMP(6),
+    last_validated_at        TIMESTAMP(6),
+    saved_for_later_at       TIMESTAMP(6),
+    removed_at               TIMESTAMP(6),
+    metadata                 TEXT,
+    added_from               VARCHAR(50)
+);
+
+-- Cart indexes
+-- findActiveCartByUserId / findActiveCartBySessionId: only ACTIVE rows, already in ORDER BY order
+CREATE INDEX idx_cart_user_active ON carts (user_id, last_activity_at DESC) WHERE status = 'ACTIVE';
+CREATE INDEX idx_cart_session_active ON carts (session_id, last_activity_at DESC) WHERE status = 'ACTIVE';
+-- findByUserIdOrderByCreatedAtDesc
+CREATE INDEX idx_cart_user_created ON carts (user_id, created_at DESC);
+-- findByStatusOrderByUpdatedAtDesc, cleanupOldCarts
+CREATE INDEX idx_cart_status_updated ON carts (status, updated_at DESC);
+-- markExpiredCarts / findExpiredCarts: covering scan over live carts only
+CREATE INDEX idx_cart_expiry_scan ON carts (expires_at) INCLUDE (id) WHERE status IN ('ACTIVE', 'SAVED');
+-- markAbandonedCarts / findAbandonedCarts
+CREATE INDEX idx_cart_activity_active ON carts (last_activity_at) WHERE status = 'ACTIVE';
+-- cleanupEmptyCarts
+CREATE INDEX idx_cart_empty ON carts (updated_at) WHERE item_count = 0;
+-- Statistics by date range
+CREATE INDEX idx_cart_created ON carts (created_at);
+
+-- Cart item indexes
+-- findActiveItemsByCartId: only ACTIVE rows, already in ORDER BY order
+CREATE INDEX idx_cart_item_cart_active ON cart_items (cart_id, added_at) WHERE status = 'ACTIVE';
+-- One active line per product per cart; also the arbiter for merge upserts
+CREATE UNIQUE INDEX uq_cart_item_active_product ON cart_items (cart_id, product_id) WHERE status = 'ACTIVE';
+-- findSavedItemsByCartId
+CREATE INDEX idx_cart_item_saved ON cart_items (cart_id, saved_for_later_at DESC) WHERE status = 'SAVED_FOR_LATER';
+-- Foreign key lookups and bulk operations by cart
+CREATE INDEX idx_cart_item_cart ON cart_items (cart_id);
+-- cleanupRemovedItems
+CREATE INDEX idx_cart_item_removed ON cart_items (removed_at) WHERE status = 'REMOVED';
+CREATE INDEX idx_cart_item_product ON cart_items (product_id);
+CREATE INDEX idx_cart_item_added ON cart_items (added_at);
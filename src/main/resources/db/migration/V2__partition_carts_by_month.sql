@@ -0,0 +1,80 @@
+-- Partition both hot tables by cart creation month so retention drops whole partitions instead of
+-- deleting rows.
+--
+-- carts:      RANGE (created_at)      -> carts_pYYYYMM      | carts_default
+-- cart_items: RANGE (cart_created_at) -> cart_items_pYYYYMM | cart_items_default
+--
+-- Items carry their cart's created_at, so a cart and its items always sit in the same month and a
+-- month is retired by dropping the item partition and detaching/dropping the cart partition. The key
+-- never changes after insert, so status changes stay in-place updates. Keys include the partition
+-- key (Postgres requires it), which keeps ids unique and the carts -> cart_items foreign key intact.
+
+ALTER TABLE cart_items RENAME TO cart_items_v1;
+ALTER TABLE carts RENAME TO carts_v1;
+
+CREATE TABLE carts (LIKE carts_v1 INCLUDING DEFAULTS) PARTITION BY RANGE (created_at);
+ALTER TABLE carts ADD PRIMARY KEY (id, created_at);
+CREATE TABLE carts_default PARTITION OF carts DEFAULT;
+
+-- The partition key has to exist in the CREATE; as the last column it lines up with the copy below
+CREATE TABLE cart_items (LIKE cart_items_v1 INCLUDING DEFAULTS, cart_created_at TIMESTAMP(6) NOT NULL)
+    PARTITION BY RANGE (cart_created_at);
+ALTER TABLE cart_items ADD PRIMARY KEY (id, cart_created_at);
+ALTER TABLE cart_items ADD FOREIGN KEY (cart_id, cart_created_at)
+    REFERENCES carts (id, created_at) ON DELETE CASCADE;
+CREATE TABLE cart_items_default PARTITION OF cart_items DEFAULT;
+
+-- Monthly partitions from the oldest existing cart up to two months ahead
+-- (CartPartitionRepository keeps creating them ahead)
+DO $$
+DECLARE
+    m DATE;
+BEGIN
+    FOR m IN SELECT generate_series(
+                     date_trunc('month', least(coalesce((SELECT min(created_at) FROM carts_v1), now()), now())),
+                     date_trunc('month', now()) + interval '2 months',
+                     interval '1 month')::date LOOP
+        EXECUTE format('CREATE TABLE carts_p%s PARTITION OF carts FOR VALUES FROM (%L) TO (%L)',
+                       to_char(m, 'YYYYMM'), m, (m + interval '1 month')::date);
+        EXECUTE format('CREATE TABLE cart_items_p%s PARTITION OF cart_items FOR VALUES FROM (%L) TO (%L)',
+                       to_char(m, 'YYYYMM'), m, (m + interval '1 month')::date);
+    END LOOP;
+END $$;
+
+INSERT INTO carts SELECT * FROM carts_v1;
+INSERT INTO cart_items SELECT i.*, c.created_at FROM cart_items_v1 i JOIN carts_v1 c ON c.id = i.cart_id;
+
+DROP TABLE cart_items_v1;
+DROP TABLE carts_v1;
+
+-- Indexes are created on the parents and cascade to every partition, including future ones.
+-- The planner reports a partition's index under its own name; it belongs to the index named here.
+
+-- Cart indexes
+-- findActiveCartByUserId / findActiveCartBySessionId: only ACTIVE rows, already in ORDER BY order
+CREATE INDEX idx_cart_user_active ON carts (user_id, last_activity_at DESC) WHERE status = 'ACTIVE';
+CREATE INDEX idx_cart_session_active ON carts (session_id, last_activity_at DESC) WHERE status = 'ACTIVE';
+-- findByUserIdOrderByCreatedAtDesc
+CREATE INDEX idx_cart_user_created ON carts (user_id, created_at DESC);
+-- findByStatusOrderByUpdatedAtDesc
+CREATE INDEX idx_cart_status_updated ON carts (status, updated_at DESC);
+-- markExpiredCarts / findExpiredCarts: covering scan over live carts only
+CREATE INDEX idx_cart_expiry_scan ON carts (expires_at) INCLUDE (id) WHERE status IN ('ACTIVE', 'SAVED');
+-- markAbandonedCarts / findAbandonedCarts
+CREATE INDEX idx_cart_activity_active ON carts (last_activity_at) WHERE status = 'ACTIVE';
+-- cleanupEmptyCarts
+CREATE INDEX idx_cart_empty ON carts (updated_at) WHERE item_count = 0;
+-- Statistics by date range (within the pruned months)
+CREATE INDEX idx_cart_created ON carts (created_at);
+
+-- Cart item indexes
+-- findActiveItemsByCartId: only ACTIVE rows, already in ORDER BY order
+CREATE INDEX idx_cart_item_cart_active ON cart_items (cart_id, added_at) WHERE status = 'ACTIVE';
+-- One active line per product per cart; also the arbiter for merge upserts
+CREATE UNIQUE INDEX uq_cart_item_active_product ON cart_items (cart_id, cart_created_at, product_id) WHERE status = 'ACTIVE';
+-- findSavedItemsByCartId
+CREATE INDEX idx_cart_item_saved ON cart_items (cart_id, saved_for_later_at DESC) WHERE status = 'SAVED_FOR_LATER';
+-- Foreign key lookups and bulk operations by cart
+CREATE INDEX idx_cart_item_cart ON cart_items (cart_id, cart_created_at);
+CREATE INDEX idx_cart_item_product ON cart_items (product_id);
+CREATE INDEX idx_cart_item_added ON cart_items (added_at);
@@ -0,0 +1,3 @@
+-- Optimistic version of a cart row (Cart.version). Bumped by every write to the cart,
+-- including the bulk SQL in CartRepository, and used to order read snapshots.
+ALTER TABLE carts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
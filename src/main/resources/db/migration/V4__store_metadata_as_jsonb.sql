@@ -0,0 +1,13 @@
+-- Cart and item metadata as jsonb (Cart.metadata, CartItem.metadata), so responses can embed the
+-- stored document as is. Values that are not valid JSON are kept as JSON strings.
+CREATE FUNCTION pg_temp.to_jsonb_or_string(value TEXT) RETURNS jsonb AS $$
+BEGIN
+    RETURN value::jsonb;
+EXCEPTION WHEN others THEN
+    RETURN to_jsonb(value);
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Both tables are partitioned; the type change is applied to every partition
+ALTER TABLE carts ALTER COLUMN metadata TYPE jsonb USING pg_temp.to_jsonb_or_string(metadata);
+ALTER TABLE cart_items ALTER COLUMN metadata TYPE jsonb USING pg_temp.to_jsonb_or_string(metadata);
@@ -0,0 +1,218 @@
+package com.shah_s.bakery_cart_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// End-to-end load test: the service runs on a random port against Postgres and Redis containers, with
+// product-service and order-service replaced by ServiceStubServer. Virtual shoppers repeat a journey
+// (guest cart, browse, add, update, log in and merge, checkout) and the report lists throughput and
+// p50/p99/p999 per endpoint for the measured window.
+//
+// Run with: ./gradlew loadTest -Pload.users=32 -Pload.duration-seconds=120 -Pload.product-latency-ms=40
+// Needs only a local Docker daemon (the postgres and redis images are pulled once).
+@Tag("load")
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.use_sql_comments=false",
+        "logging.level.com.shah_s.bakery_cart_service=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.org.springframework.cache=WARN",
+        "logging.level.org.springframework.data.redis=WARN",
+        "logging.level.feign=WARN"
+})
+class CartLoadTests {
+
+    private static final int USERS = Integer.getInteger("load.users", 16);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 15);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 60);
+    private static final int THINK_TIME_MS = Integer.getInteger("load.think-time-ms", 50);
+    private static final double CHECKOUT_RATIO = Double.parseDouble(System.getProperty("load.checkout-ratio", "0.3"));
+
+    private static final ServiceStubServer stubs = new ServiceStubServer(
+            Long.getLong("load.product-latency-ms", 20),
+            Long.getLong("load.order-latency-ms", 50),
+            Long.getLong("load.latency-jitter-ms", 10));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EndpointLatencyRecorder recorder = new EndpointLatencyRecorder();
+
+    @LocalServerPort
+    private int port;
+
+    private volatile boolean running = true;
+
+    @DynamicPropertySource
+    static void serviceStubs(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.openfeign.client.config.product-service.url", stubs::baseUrl);
+        registry.add("spring.cloud.openfeign.client.config.order-service.url", stubs::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        stubs.close();
+    }
+
+    @Test
+    void shopperJourneys() throws Exception {
+        List<Future<?>> shoppers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < USERS; i++) {
+                shoppers.add(executor.submit(this::shopUntilStopped));
+            }
+
+            TimeUnit.SECONDS.sleep(WARMUP_SECONDS);
+            recorder.start();
+            TimeUnit.SECONDS.sleep(DURATION_SECONDS);
+            recorder.stop();
+            running = false;
+
+            for (Future<?> shopper : shoppers) {
+                shopper.get();
+            }
+        }
+
+        System.out.printf("[%s] %d shoppers, %ds measured after %ds warm-up, think time %d ms%n%s",
+                getClass().getSimpleName(), USERS, DURATION_SECONDS, WARMUP_SECONDS, THINK_TIME_MS, recorder.report());
+
+        assertThat(recorder.failures()).isZero();
+    }
+
+    // Private helper methods
+    private void shopUntilStopped() {
+        while (running) {
+            try {
+                shopperJourney();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Already counted as a failed request; start over with a new shopper
+            }
+        }
+    }
+
+    private void shopperJourney() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID userId = UUID.randomUUID();
+        Map<String, String> guest = Map.of("X-Session-Id", "load-session-" + UUID.randomUUID());
+        Map<String, String> user = Map.of("X-User-Id", userId.toString());
+
+        // Browse as a guest
+        UUID guestCartId = id(call("POST /api/carts", "POST", "/api/carts", guest, Map.of()));
+        browse(guestCartId, Map.of());
+
+        // Add a few products, change the quantity of one of them
+        JsonNode cart = null;
+        int products = random.nextInt(1, 6);
+        for (int i = 0; i < products; i++) {
+            cart = call("POST /api/carts/{cartId}/items", "POST", "/api/carts/" + guestCartId + "/items", guest,
+                    Map.of("productId", ServiceStubServer.productId(random.nextInt(ServiceStubServer.CATALOG_SIZE)),
+                            "quantity", random.nextInt(1, 4),
+                            "addedFrom", "PRODUCT_PAGE"));
+            think();
+        }
+        String itemId = cart.path("items").path(0).path("id").asText();
+        call("PUT /api/carts/{cartId}/items/{itemId}", "PUT", "/api/carts/" + guestCartId + "/items/" + itemId, guest,
+                Map.of("quantity", random.nextInt(1, 6)));
+        browse(guestCartId, Map.of());
+
+        // Log in: the guest cart is merged into the user's cart
+        UUID userCartId = id(call("POST /api/carts", "POST", "/api/carts", user, Map.of()));
+        call("POST /api/carts/merge", "POST", "/api/carts/merge", user,
+                Map.of("sourceCartId", guestCartId, "targetCartId", userCartId));
+        call("GET /api/carts/user/{userId}", "GET", "/api/carts/user/" + userId, user, null);
+        browse(userCartId, user);
+
+        if (random.nextDouble() < CHECKOUT_RATIO) {
+            Map<String, Object> checkout = new LinkedHashMap<>();
+            checkout.put("customerName", "Load Shopper");
+            checkout.put("customerEmail", "shopper-" + userId + "@example.com");
+            checkout.put("deliveryType", "PICKUP");
+            checkout.put("paymentMethod", "CARD");
+            call("POST /api/carts/{cartId}/checkout", "POST", "/api/carts/" + userCartId + "/checkout", user, checkout);
+        }
+    }
+
+    // A full read, a sparse read (?fields=) and a pause
+    private void browse(UUID cartId, Map<String, String> headers) throws IOException, InterruptedException {
+        call("GET /api/carts/{cartId}", "GET", "/api/carts/" + cartId, headers, null);
+        call("GET /api/carts/{cartId}?fields", "GET", "/api/carts/" + cartId + "?fields=totalAmount,itemCount", headers, null);
+        think();
+    }
+
+    // Sends one request and records its response time under the endpoint template.
+    // Non-2xx responses count as failures and abort the journey.
+    private JsonNode call(String endpoint, String method, String path, Map<String, String> headers, Object body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+        headers.forEach(request::header);
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, true);
+            throw e;
+        }
+        boolean failed = response.statusCode() >= 300;
+        recorder.record(endpoint, System.nanoTime() - start, failed);
+
+        if (failed) {
+            throw new IOException(endpoint + " returned " + response.statusCode() + ": "
+                    + new String(response.body()));
+        }
+        return response.body().length > 0 ? objectMapper.readTree(response.body()) : null;
+    }
+
+    private UUID id(JsonNode cart) {
+        return UUID.fromString(cart.path("id").asText());
+    }
+
+    private void think() throws InterruptedException {
+        if (THINK_TIME_MS > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(THINK_TIME_MS / 2, THINK_TIME_MS * 3L / 2 + 1));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.shah_s.bakery_cart_service;
+
+import com.shah_s.bakery_cart_service.dto.CartResponse;
+import com.shah_s.bakery_cart_service.dto.MergeCartsRequest;
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import com.shah_s.bakery_cart_service.repository.CartRepository;
+import com.shah_s.bakery_cart_service.repository.VirtualCartRegistry;
+import com.shah_s.bakery_cart_service.service.CartService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Merging a guest cart into the cart of a user who logs in
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "cart.reservation.enabled=false"
+})
+class CartMergeTests {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private VirtualCartRegistry virtualCartRegistry;
+
+    @Test
+    void mergeGuestCartIntoVirtualUserCart() {
+        UUID userId = UUID.randomUUID();
+        Cart guestCart = new Cart("merge-session-" + UUID.randomUUID());
+        guestCart.addItem(new CartItem(guestCart, UUID.randomUUID(), "Baguette", 2, new BigDecimal("2.50")));
+        guestCart.addItem(new CartItem(guestCart, UUID.randomUUID(), "Croissant", 3, new BigDecimal("1.80")));
+        guestCart = cartRepository.save(guestCart);
+
+        // The user has no stored cart yet: GET /api/carts/user/{userId} handed out a virtual one
+        Cart virtualCart = virtualCartRegistry.register(userId, null);
+
+        CartResponse merged = cartService.mergeCarts(new MergeCartsRequest(guestCart.getId(), virtualCart.getId()));
+
+        assertThat(merged.getId()).isEqualTo(virtualCart.getId());
+        assertThat(merged.getItemCount()).isEqualTo(2);
+        assertThat(cartRepository.findActiveCartByUserId(userId))
+                .hasValueSatisfying(cart -> assertThat(cart.getId()).isEqualTo(virtualCart.getId()));
+        assertThat(cartRepository.existsById(guestCart.getId())).isFalse();
+        assertThat(virtualCartRegistry.findById(virtualCart.getId())).isEmpty();
+    }
+}
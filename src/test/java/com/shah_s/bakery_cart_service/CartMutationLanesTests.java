@@ -0,0 +1,194 @@
+package com.shah_s.bakery_cart_service;
+
+import com.shah_s.bakery_cart_service.exception.CartServiceException;
+import com.shah_s.bakery_cart_service.service.CartMutationLanes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Lane semantics of CartMutationLanes, without a Spring context: per-cart ordering, multi-cart lane
+// ordering, and what a caller that times out can and cannot cancel
+class CartMutationLanesTests {
+
+    private static final int LANE_COUNT = 8;
+
+    private CartMutationLanes lanes;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void startLanes() {
+        lanes = new CartMutationLanes();
+        ReflectionTestUtils.setField(lanes, "enabled", true);
+        ReflectionTestUtils.setField(lanes, "laneCount", LANE_COUNT);
+        ReflectionTestUtils.setField(lanes, "timeoutMs", 5000L);
+        ReflectionTestUtils.invokeMethod(lanes, "startLanes");
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void stopLanes() {
+        callers.shutdownNow();
+        ReflectionTestUtils.invokeMethod(lanes, "stopLanes");
+    }
+
+    @Test
+    void mutationsOfACartRunInArrivalOrderOnItsLane() throws Exception {
+        UUID cartId = UUID.randomUUID();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String name = "mutation-" + i;
+            boolean first = i == 0;
+            calls.add(startCaller(() -> lanes.run(cartId, () -> {
+                if (first) {
+                    release.await();
+                }
+                order.add(name);
+                threads.add(Thread.currentThread().getName());
+                return null;
+            })));
+        }
+        release.countDown();
+        for (Future<?> call : calls) {
+            call.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(order).containsExactly("mutation-0", "mutation-1", "mutation-2", "mutation-3", "mutation-4");
+        assertThat(threads).containsOnly("cart-lane-" + laneOf(cartId));
+    }
+
+    @Test
+    void multiCartMutationRunsOnItsHighestLaneAndNestedMutationsRunInline() throws Throwable {
+        UUID[] carts = cartsOnDifferentLanes();
+        int highest = Math.max(laneOf(carts[0]), laneOf(carts[1]));
+
+        List<String> threads = lanes.run(List.of(carts[0], carts[1]), () -> {
+            String outer = Thread.currentThread().getName();
+            // Lanes the merge holds are not queued on again
+            String nested = lanes.run(carts[0], () -> Thread.currentThread().getName());
+            return List.of(outer, nested);
+        });
+
+        assertThat(threads).containsExactly("cart-lane-" + highest, "cart-lane-" + highest);
+    }
+
+    @Test
+    void oppositeMergesOfTheSameCartsDoNotDeadlock() throws Exception {
+        UUID[] carts = cartsOnDifferentLanes();
+
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<UUID> direction = i % 2 == 0 ? List.of(carts[0], carts[1]) : List.of(carts[1], carts[0]);
+            calls.add(callers.submit(callable(() -> lanes.run(direction, () -> {
+                Thread.sleep(1);
+                return null;
+            }))));
+        }
+
+        for (Future<?> call : calls) {
+            call.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void callerThatTimesOutBeforeItsMutationStartsCancelsIt() throws Throwable {
+        ReflectionTestUtils.setField(lanes, "timeoutMs", 100L);
+        UUID cartId = UUID.randomUUID();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocker = startCaller(() -> lanes.run(cartId, () -> release.await(5, TimeUnit.SECONDS)));
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertThatThrownBy(() -> lanes.run(cartId, () -> ran.getAndSet(true)))
+                .isInstanceOf(CartServiceException.class)
+                .hasMessage("Cart is busy, please retry");
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        // Drains the lane: the abandoned mutation came before this one
+        lanes.run(cartId, () -> null);
+        assertThat(ran).isFalse();
+    }
+
+    @Test
+    void callerWaitsForAStartedMutationPastTheTimeout() throws Throwable {
+        ReflectionTestUtils.setField(lanes, "timeoutMs", 100L);
+
+        String result = lanes.run(UUID.randomUUID(), () -> {
+            Thread.sleep(300);
+            return "applied";
+        });
+
+        assertThat(result).isEqualTo("applied");
+    }
+
+    @Test
+    void mutationFailuresReachTheCallerUnwrapped() {
+        Exception failure = new Exception("checked failure");
+
+        assertThatThrownBy(() -> lanes.run(UUID.randomUUID(), () -> {
+            throw failure;
+        })).isSameAs(failure);
+    }
+
+    // Starts a caller and returns once its mutation is queued on the lane (the caller is waiting for it)
+    private Future<?> startCaller(CartMutationLanes.Mutation<?> call) throws InterruptedException {
+        AtomicBoolean queued = new AtomicBoolean();
+        List<Thread> caller = new CopyOnWriteArrayList<>();
+        Future<?> future = callers.submit(callable(() -> {
+            caller.add(Thread.currentThread());
+            return call.run();
+        }));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!queued.get() && System.currentTimeMillis() < deadline) {
+            queued.set(!caller.isEmpty() && caller.get(0).getState() == Thread.State.TIMED_WAITING);
+            Thread.sleep(5);
+        }
+        assertThat(queued).as("caller queued its mutation").isTrue();
+        return future;
+    }
+
+    private Callable<Object> callable(CartMutationLanes.Mutation<?> call) {
+        return () -> {
+            try {
+                return call.run();
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        };
+    }
+
+    private UUID[] cartsOnDifferentLanes() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        while (laneOf(second) == laneOf(first)) {
+            second = UUID.randomUUID();
+        }
+        return new UUID[] {first, second};
+    }
+
+    private int laneOf(UUID cartId) {
+        return Math.floorMod(cartId.hashCode(), LANE_COUNT);
+    }
+}
@@ -0,0 +1,96 @@
+package com.shah_s.bakery_cart_service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shah_s.bakery_cart_service.dto.CartResponse;
+import com.shah_s.bakery_cart_service.dto.CartSnapshot;
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import com.shah_s.bakery_cart_service.repository.CartRepository;
+import com.shah_s.bakery_cart_service.repository.CartSnapshotStore;
+import com.shah_s.bakery_cart_service.service.CartService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Read model consistency: a reader that loaded a cart before a write must not store its snapshot
+// over the write
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "cart.reservation.enabled=false",
+        "cart.validation.check-price-on-view=false"
+})
+class CartSnapshotTests {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartSnapshotStore cartSnapshotStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void staleReadAfterDeltaWriteIsNotStored() throws Exception {
+        Cart cart = new Cart(UUID.randomUUID(), null);
+        cart.addItem(new CartItem(cart, UUID.randomUUID(), "Baguette", 2, new BigDecimal("2.50")));
+        cart.addItem(new CartItem(cart, UUID.randomUUID(), "Croissant", 3, new BigDecimal("1.80")));
+        Cart storedCart = cartRepository.save(cart);
+        UUID cartId = storedCart.getId();
+        UUID removedItemId = storedCart.getItems().get(0).getId();
+
+        // Reader: loads the cart and builds its snapshot, but is slow to store it
+        CartSnapshot staleSnapshot = transactionTemplate.execute(status -> {
+            Cart loaded = cartRepository.findById(cartId).orElseThrow();
+            return new CartSnapshot(cartId, loaded.getVersion(), loaded.getUserId(),
+                    writeJson(CartResponse.from(loaded)));
+        });
+
+        // Writer: delta write commits in between
+        cartService.removeItemFromCartDelta(cartId, removedItemId);
+
+        // The reader's late put loses against the writer's tombstone
+        assertThat(cartSnapshotStore.put(staleSnapshot, true)).isFalse();
+        assertThat(cartSnapshotStore.get(cartId)).isNull();
+
+        // The next read rebuilds the snapshot at the written version
+        CartSnapshot rebuilt = cartService.getCartSnapshot(cartId);
+        Long writtenVersion = cartRepository.findVersionById(cartId).orElseThrow();
+        assertThat(rebuilt.version()).isEqualTo(writtenVersion);
+        assertThat(objectMapper.readValue(rebuilt.body(), CartResponse.class).getItemCount()).isEqualTo(1);
+        assertThat(cartSnapshotStore.get(cartId).version()).isEqualTo(writtenVersion);
+    }
+
+    @Test
+    void deletedCartSnapshotIsNotStoredAgain() {
+        UUID cartId = UUID.randomUUID();
+        cartSnapshotStore.put(new CartSnapshot(cartId, 3L, null, "{}"), false);
+
+        cartSnapshotStore.invalidateDeleted(cartId);
+
+        assertThat(cartSnapshotStore.get(cartId)).isNull();
+        assertThat(cartSnapshotStore.put(new CartSnapshot(cartId, 4L, null, "{}"), false)).isFalse();
+    }
+
+    private String writeJson(CartResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
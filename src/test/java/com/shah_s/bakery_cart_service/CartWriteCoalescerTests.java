@@ -0,0 +1,207 @@
+package com.shah_s.bakery_cart_service;
+
+import com.shah_s.bakery_cart_service.config.CartPreconditions;
+import com.shah_s.bakery_cart_service.dto.CartResponse;
+import com.shah_s.bakery_cart_service.dto.UpdateItemRequest;
+import com.shah_s.bakery_cart_service.exception.CartPreconditionFailedException;
+import com.shah_s.bakery_cart_service.exception.CartServiceException;
+import com.shah_s.bakery_cart_service.service.CartService;
+import com.shah_s.bakery_cart_service.service.CartWriteCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Batching semantics of CartWriteCoalescer against a stubbed CartService: what followers get back,
+// the order of consecutive batches of a cart, per-item fallback and If-Match handling
+class CartWriteCoalescerTests {
+
+    private static final long WINDOW_MS = 300;
+
+    private CartService cartService;
+    private CartWriteCoalescer coalescer;
+    private ExecutorService callers;
+
+    // Item updates of every CartService.updateCartItems call, in call order
+    private final List<Map<UUID, Integer>> applied = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void createCoalescer() {
+        cartService = mock(CartService.class);
+        coalescer = new CartWriteCoalescer(cartService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "windowMs", WINDOW_MS);
+        ReflectionTestUtils.setField(coalescer, "stripeCount", 4);
+        ReflectionTestUtils.invokeMethod(coalescer, "createStripes");
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void stopCallers() {
+        callers.shutdownNow();
+        CartPreconditions.clear();
+    }
+
+    @Test
+    void followersReceiveTheStateOfTheWholeBatch() throws Exception {
+        UUID cartId = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        CartResponse state = new CartResponse();
+        when(cartService.updateCartItems(eq(cartId), anyMap(), anyBoolean())).thenAnswer(invocation -> {
+            record(invocation.getArgument(1));
+            return new CartService.ItemUpdates(state, Map.of());
+        });
+
+        Future<CartResponse> leader = startLeader(cartId, first, 1);
+        Future<CartResponse> follower = update(cartId, second, 2);
+        Future<CartResponse> laterValue = update(cartId, first, 3);
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(state);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(state);
+        assertThat(laterValue.get(5, TimeUnit.SECONDS)).isSameAs(state);
+        // One write, the later value of an item winning
+        assertThat(applied).containsExactly(Map.of(first, 3, second, 2));
+    }
+
+    @Test
+    void consecutiveBatchesOfACartApplyInArrivalOrder() throws Exception {
+        UUID cartId = UUID.randomUUID();
+        UUID itemId = UUID.randomUUID();
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cartService.updateCartItems(eq(cartId), anyMap(), anyBoolean())).thenAnswer(invocation -> {
+            record(invocation.getArgument(1));
+            if (applied.size() == 1) {
+                applying.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return new CartService.ItemUpdates(new CartResponse(), Map.of());
+        });
+
+        Future<CartResponse> earlier = update(cartId, itemId, 1);
+        assertThat(applying.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Opens the next batch while the first one is still being applied; its window runs out first
+        Future<CartResponse> later = update(cartId, itemId, 2);
+        Thread.sleep(WINDOW_MS * 2);
+        assertThat(applied).hasSize(1);
+
+        release.countDown();
+        earlier.get(5, TimeUnit.SECONDS);
+        later.get(5, TimeUnit.SECONDS);
+        assertThat(applied).containsExactly(Map.of(itemId, 1), Map.of(itemId, 2));
+    }
+
+    @Test
+    void badItemFailsOnlyItsOwnCallers() throws Exception {
+        UUID cartId = UUID.randomUUID();
+        UUID goodItem = UUID.randomUUID();
+        UUID badItem = UUID.randomUUID();
+        when(cartService.updateCartItems(eq(cartId), anyMap(), anyBoolean())).thenAnswer(invocation -> {
+            Map<UUID, UpdateItemRequest> updates = invocation.getArgument(1);
+            record(updates);
+            if (updates.containsKey(badItem)) {
+                throw new CartServiceException("Insufficient stock");
+            }
+            return new CartService.ItemUpdates(new CartResponse(), Map.of());
+        });
+
+        Future<CartResponse> good = startLeader(cartId, goodItem, 1);
+        Future<CartResponse> bad = update(cartId, badItem, 99);
+
+        assertThat(good.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("Insufficient stock");
+        // The batch, then each item on its own
+        assertThat(applied).containsExactly(Map.of(goodItem, 1, badItem, 99), Map.of(goodItem, 1), Map.of(badItem, 99));
+    }
+
+    @Test
+    void updateWithIfMatchIsNotCoalesced() {
+        UUID cartId = UUID.randomUUID();
+        UUID itemId = UUID.randomUUID();
+        CartResponse response = new CartResponse();
+        when(cartService.updateCartItem(eq(cartId), eq(itemId), any())).thenReturn(response);
+
+        CartPreconditions.expect(cartId, "\"7\"");
+
+        assertThat(coalescer.updateCartItem(cartId, itemId, new UpdateItemRequest(2))).isSameAs(response);
+        verify(cartService, never()).updateCartItems(any(), anyMap(), anyBoolean());
+        // Left for the cart mutation itself to take and check
+        assertThat(CartPreconditions.pending(cartId)).isTrue();
+    }
+
+    @Test
+    void failedPreconditionFailsTheWholeBatchWithoutRetry() throws Exception {
+        UUID cartId = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(cartService.updateCartItems(eq(cartId), anyMap(), anyBoolean())).thenAnswer(invocation -> {
+            record(invocation.getArgument(1));
+            throw new CartPreconditionFailedException("Cart has been modified", "\"8\"");
+        });
+
+        Future<CartResponse> leader = startLeader(cartId, first, 1);
+        Future<CartResponse> follower = update(cartId, second, 2);
+
+        for (Future<CartResponse> caller : List.of(leader, follower)) {
+            assertThatThrownBy(() -> caller.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(CartPreconditionFailedException.class);
+        }
+        assertThat(applied).hasSize(1);
+    }
+
+    // Starts the first update of a batch and returns once its caller sleeps through the window
+    private Future<CartResponse> startLeader(UUID cartId, UUID itemId, int quantity) throws InterruptedException {
+        AtomicReference<Thread> caller = new AtomicReference<>();
+        Future<CartResponse> future = callers.submit(() -> {
+            caller.set(Thread.currentThread());
+            return coalescer.updateCartItem(cartId, itemId, new UpdateItemRequest(quantity));
+        });
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (caller.get() == null || caller.get().getState() != Thread.State.TIMED_WAITING) {
+            assertThat(System.currentTimeMillis()).as("leader opened the batch").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        return future;
+    }
+
+    private Future<CartResponse> update(UUID cartId, UUID itemId, int quantity) {
+        return callers.submit(() -> coalescer.updateCartItem(cartId, itemId, new UpdateItemRequest(quantity)));
+    }
+
+    private void record(Map<UUID, UpdateItemRequest> updates) {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        updates.forEach((itemId, request) -> quantities.put(itemId, request.getQuantity()));
+        applied.add(quantities);
+    }
+}
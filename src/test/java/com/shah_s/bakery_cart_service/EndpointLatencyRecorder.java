@@ -0,0 +1,88 @@
+package com.shah_s.bakery_cart_service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Response times per endpoint (method + path template) for the load test. Samples are only kept
+// while recording is on, so warm-up traffic does not show in the report.
+class EndpointLatencyRecorder {
+
+    private final Map<String, Samples> endpoints = new ConcurrentHashMap<>();
+    private final AtomicBoolean recording = new AtomicBoolean();
+    private volatile long startedAt;
+    private volatile long stoppedAt;
+
+    void start() {
+        startedAt = System.nanoTime();
+        recording.set(true);
+    }
+
+    void stop() {
+        recording.set(false);
+        stoppedAt = System.nanoTime();
+    }
+
+    void record(String endpoint, long nanos, boolean failed) {
+        if (!recording.get()) return;
+        endpoints.computeIfAbsent(endpoint, key -> new Samples()).add(nanos, failed);
+    }
+
+    long failures() {
+        return endpoints.values().stream().mapToLong(Samples::failures).sum();
+    }
+
+    // Throughput over the measured window, and percentiles from the sorted samples (nearest rank)
+    String report() {
+        double seconds = (stoppedAt - startedAt) / 1_000_000_000.0;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-40s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+
+        long totalRequests = 0;
+        for (Map.Entry<String, Samples> entry : new TreeMap<>(endpoints).entrySet()) {
+            long[] nanos = entry.getValue().sorted();
+            totalRequests += nanos.length;
+            report.append(String.format("%-40s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), nanos.length, entry.getValue().failures(), nanos.length / seconds,
+                    percentile(nanos, 0.50), percentile(nanos, 0.99), percentile(nanos, 0.999),
+                    nanos.length > 0 ? nanos[nanos.length - 1] / 1_000_000.0 : 0.0));
+        }
+        report.append(String.format("%-40s %8d %7d %9.1f%n", "total", totalRequests, failures(), totalRequests / seconds));
+        return report.toString();
+    }
+
+    // Private helper methods
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0.0;
+        int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(rank, 0)] / 1_000_000.0;
+    }
+
+    private static class Samples {
+
+        private long[] nanos = new long[1024];
+        private int size;
+        private long failures;
+
+        synchronized void add(long value, boolean failed) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            if (failed) failures++;
+        }
+
+        synchronized long failures() {
+            return failures;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(nanos, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
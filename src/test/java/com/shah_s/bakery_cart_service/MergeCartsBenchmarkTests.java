@@ -0,0 +1,164 @@
+package com.shah_s.bakery_cart_service;
+
+import com.shah_s.bakery_cart_service.dto.CartResponse;
+import com.shah_s.bakery_cart_service.dto.MergeCartsRequest;
+import com.shah_s.bakery_cart_service.entity.Cart;
+import com.shah_s.bakery_cart_service.entity.CartItem;
+import com.shah_s.bakery_cart_service.repository.CartRepository;
+import com.shah_s.bakery_cart_service.service.CartService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Merges a 50-item guest cart into a user cart and reports latency and JDBC statement counts.
+// Run with: ./gradlew benchmarkTest
+// EntityByEntity is the original merge (items added one by one through the entity, source deleted
+// with its items) on the old persistence setup; Batched is CartService.mergeCarts on the prod profile.
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+abstract class MergeCartsBenchmarkTests {
+
+    private static final int GUEST_ITEMS = 50;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 20;
+
+    private static final int MAX_QUANTITY_PER_ITEM = 50;
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void mergeFiftyItemGuestCart() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            mergeOnce();
+        }
+
+        long[] nanos = new long[MEASURED_ROUNDS];
+        long statements = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            MergeCartsRequest request = prepareCarts();
+            statistics.clear();
+
+            long start = System.nanoTime();
+            int itemCount = merge(request);
+            nanos[i] = System.nanoTime() - start;
+            statements += statistics.getPrepareStatementCount();
+
+            assertThat(itemCount).isEqualTo(GUEST_ITEMS);
+        }
+
+        Arrays.sort(nanos);
+        System.out.printf("[%s] merge %d-item guest cart: p50=%.2f ms p90=%.2f ms, %.1f JDBC statements/merge%n",
+                getClass().getSimpleName(), GUEST_ITEMS,
+                nanos[MEASURED_ROUNDS / 2] / 1_000_000.0,
+                nanos[(int) (MEASURED_ROUNDS * 0.9)] / 1_000_000.0,
+                (double) statements / MEASURED_ROUNDS);
+    }
+
+    // Merge the carts, returning the item count of the merged cart
+    abstract int merge(MergeCartsRequest request);
+
+    private void mergeOnce() {
+        merge(prepareCarts());
+    }
+
+    // The merge as it was before set-based SQL: entities loaded, items added one at a time
+    int mergeEntityByEntity(MergeCartsRequest request) {
+        return transactionTemplate.execute(status -> {
+            Cart sourceCart = cartRepository.findById(request.getSourceCartId()).orElseThrow();
+            Cart targetCart = cartRepository.findById(request.getTargetCartId()).orElseThrow();
+
+            for (CartItem sourceItem : sourceCart.getActiveItems()) {
+                CartItem targetItem = targetCart.findItemByProductId(sourceItem.getProductId());
+                if (targetItem != null && request.getHandleDuplicates()) {
+                    targetItem.setQuantity(Math.min(targetItem.getQuantity() + sourceItem.getQuantity(),
+                            MAX_QUANTITY_PER_ITEM));
+                } else if (targetItem == null) {
+                    CartItem newItem = new CartItem(targetCart, sourceItem.getProductId(),
+                            sourceItem.getProductName(), sourceItem.getQuantity(), sourceItem.getUnitPrice());
+                    newItem.setProductSku(sourceItem.getProductSku());
+                    newItem.setProductCategory(sourceItem.getProductCategory());
+                    newItem.setProductDescription(sourceItem.getProductDescription());
+                    newItem.setProductImageUrl(sourceItem.getProductImageUrl());
+                    newItem.setSpecialInstructions(sourceItem.getSpecialInstructions());
+                    targetCart.addItem(newItem);
+                }
+            }
+
+            targetCart.updateActivity();
+            Cart mergedCart = cartRepository.save(targetCart);
+            if (request.getDeleteSourceCart()) {
+                cartRepository.delete(sourceCart);
+            }
+            return CartResponse.from(mergedCart).getItemCount();
+        });
+    }
+
+    private MergeCartsRequest prepareCarts() {
+        return transactionTemplate.execute(status -> {
+            Cart guestCart = new Cart("bench-session-" + UUID.randomUUID());
+            for (int i = 0; i < GUEST_ITEMS; i++) {
+                guestCart.addItem(new CartItem(guestCart, UUID.randomUUID(), "Sourdough loaf " + i, 2,
+                        new BigDecimal("4.50")));
+            }
+            Cart userCart = new Cart(UUID.randomUUID(), null);
+
+            guestCart = cartRepository.save(guestCart);
+            userCart = cartRepository.save(userCart);
+            return new MergeCartsRequest(guestCart.getId(), userCart.getId());
+        });
+    }
+
+    @SpringBootTest(properties = {
+            "eureka.client.enabled=false",
+            "cart.reservation.enabled=false",
+            "spring.jpa.show-sql=false",
+            "spring.jpa.properties.hibernate.generate_statistics=true",
+            "spring.jpa.properties.hibernate.jdbc.batch_size=1"
+    })
+    static class EntityByEntity extends MergeCartsBenchmarkTests {
+
+        @Override
+        int merge(MergeCartsRequest request) {
+            return mergeEntityByEntity(request);
+        }
+    }
+
+    @ActiveProfiles("prod")
+    @SpringBootTest(properties = {
+            "eureka.client.enabled=false",
+            "cart.reservation.enabled=false",
+            "spring.jpa.properties.hibernate.generate_statistics=true"
+    })
+    static class Batched extends MergeCartsBenchmarkTests {
+
+        @Override
+        int merge(MergeCartsRequest request) {
+            return cartService.mergeCarts(request).getItemCount();
+        }
+    }
+}
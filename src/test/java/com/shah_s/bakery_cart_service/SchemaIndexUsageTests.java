@@ -0,0 +1,180 @@
+package com.shah_s.bakery_cart_service;
+
+import com.shah_s.bakery_cart_service.repository.CartItemRepository;
+import com.shah_s.bakery_cart_service.repository.CartRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Checks with EXPLAIN that the hot repository queries are served by the migration-defined indexes.
+// The SQL is the one Hibernate generates for the repository methods (captured by a statement
+// inspector), planned with the real parameter values and the planner's default settings.
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "cart.reservation.enabled=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.jpa.properties.hibernate.use_sql_comments=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.shah_s.bakery_cart_service.SchemaIndexUsageTests$CapturingStatementInspector"
+})
+class SchemaIndexUsageTests {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final UUID CART_ID = UUID.randomUUID();
+    private static final String SESSION_ID = "session-hot";
+
+    private static final Pattern INDEX_NAME = Pattern.compile("(?:using|Bitmap Index Scan on) (\\S+)");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM carts");
+
+        // Some realistic spread: most carts are finished, a few are live, every cart has items
+        jdbcTemplate.update("INSERT INTO carts (id, user_id, session_id, status, subtotal, total_amount, item_count, " +
+                "total_quantity, created_at, updated_at, expires_at, last_activity_at) " +
+                "SELECT gen_random_uuid(), gen_random_uuid(), 'session-' || g, " +
+                "(CASE WHEN g % 10 = 0 THEN 'ACTIVE' ELSE 'CONVERTED' END)::cart_status, 0, 0, 0, 0, " +
+                "now(), now(), now() + interval '1 day', now() FROM generate_series(1, 5000) g");
+        jdbcTemplate.update("INSERT INTO carts (id, user_id, session_id, status, subtotal, total_amount, item_count, " +
+                "total_quantity, created_at, updated_at, expires_at, last_activity_at) " +
+                "VALUES (?, ?, ?, 'ACTIVE', 0, 0, 0, 0, now(), now(), now() + interval '30 days', now())",
+                CART_ID, USER_ID, SESSION_ID);
+        jdbcTemplate.update("INSERT INTO cart_items (id, cart_id, cart_created_at, product_id, product_name, quantity, " +
+                "unit_price, total_price, status, added_at, updated_at) " +
+                "SELECT gen_random_uuid(), c.id, c.created_at, gen_random_uuid(), 'Baguette', 1, 2.50, 2.50, " +
+                "(CASE WHEN g % 4 = 0 THEN 'ACTIVE' ELSE 'REMOVED' END)::cart_item_status, now(), now() " +
+                "FROM carts c CROSS JOIN generate_series(1, 12) g");
+        jdbcTemplate.execute("ANALYZE carts");
+        jdbcTemplate.execute("ANALYZE cart_items");
+        CapturingStatementInspector.statements.clear();
+    }
+
+    @Test
+    void findActiveCartByUserIdUsesPartialIndex() {
+        cartRepository.findActiveCartByUserId(USER_ID);
+
+        assertThat(indexesUsed(explainCaptured("from carts", USER_ID))).contains("idx_cart_user_active");
+    }
+
+    @Test
+    void findActiveCartBySessionIdUsesPartialIndex() {
+        cartRepository.findActiveCartBySessionId(SESSION_ID);
+
+        assertThat(indexesUsed(explainCaptured("from carts", SESSION_ID))).contains("idx_cart_session_active");
+    }
+
+    @Test
+    void findActiveItemsByCartIdUsesPartialIndexWithoutSort() {
+        cartItemRepository.findActiveItemsByCartId(CART_ID);
+
+        String plan = explainCaptured("from cart_items", CART_ID);
+        assertThat(indexesUsed(plan)).contains("idx_cart_item_cart_active");
+        assertThat(plan).doesNotContain("Sort");
+    }
+
+    @Test
+    void expiryScanUsesCoveringIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        cartRepository.findExpiredCarts(now);
+
+        assertThat(indexesUsed(explainCaptured("from carts", now))).contains("idx_cart_expiry_scan");
+    }
+
+    // EXPLAIN of the last captured statement containing the fragment, with the given parameters
+    private String explainCaptured(String fragment, Object... parameters) {
+        String sql = null;
+        for (String statement : CapturingStatementInspector.statements) {
+            if (statement.toLowerCase().contains(fragment)) {
+                sql = statement;
+            }
+        }
+        assertThat(sql).as("captured SQL containing '%s'", fragment).isNotNull();
+
+        // Positional JDBC parameters become $n, so the server plans the statement with the real values
+        StringBuilder prepared = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                prepared.append('$').append(++parameter);
+            } else {
+                prepared.append(c);
+            }
+        }
+        assertThat(parameter).isEqualTo(parameters.length);
+
+        String statementSql = prepared.toString();
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PREPARE hot_query AS " + statementSql);
+                List<String> values = new ArrayList<>();
+                for (Object value : parameters) {
+                    values.add("'" + value + "'");
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery(
+                        "EXPLAIN EXECUTE hot_query(" + String.join(", ", values) + ")")) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+                statement.execute("DEALLOCATE hot_query");
+                return plan.toString();
+            }
+        });
+    }
+
+    // Indexes in a plan, by the name they were created with (a partition's index is reported
+    // under the partitioned index it belongs to)
+    private Set<String> indexesUsed(String plan) {
+        Set<String> indexes = new TreeSet<>();
+        Matcher matcher = INDEX_NAME.matcher(plan);
+        while (matcher.find()) {
+            indexes.add(jdbcTemplate.queryForObject(
+                    "SELECT coalesce(pg_partition_root(?::regclass), ?::regclass)::text",
+                    String.class, matcher.group(1), matcher.group(1)));
+        }
+        return indexes;
+    }
+
+    // Records the SQL Hibernate sends, unchanged
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
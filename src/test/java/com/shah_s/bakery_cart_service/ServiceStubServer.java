@@ -0,0 +1,159 @@
+package com.shah_s.bakery_cart_service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Local stand-in for product-service and order-service, answering the calls of ProductServiceClient
+// and OrderServiceClient with canned responses. Every response is delayed by the configured latency
+// (base + uniform jitter) to mimic the remote services.
+class ServiceStubServer implements AutoCloseable {
+
+    static final int CATALOG_SIZE = 200;
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long productLatencyMillis;
+    private final long orderLatencyMillis;
+    private final long jitterMillis;
+
+    ServiceStubServer(long productLatencyMillis, long orderLatencyMillis, long jitterMillis) {
+        this.productLatencyMillis = productLatencyMillis;
+        this.orderLatencyMillis = orderLatencyMillis;
+        this.jitterMillis = jitterMillis;
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/products", this::handleProducts);
+        server.createContext("/api/orders", this::handleOrders);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    static UUID productId(int index) {
+        return UUID.nameUUIDFromBytes(("product-" + index).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // Private helper methods
+    private void handleProducts(HttpExchange exchange) throws IOException {
+        delay(productLatencyMillis);
+
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/products".length()).split("/");
+
+        if ("POST".equals(method) && path.length == 3 && "batch".equals(path[1])) {
+            // /batch/validate
+            List<UUID> productIds = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+            List<Map<String, Object>> validations = new ArrayList<>();
+            for (UUID productId : productIds) {
+                validations.add(Map.of("productId", productId, "available", true, "stockQuantity", 500,
+                        "currentPrice", price(productId)));
+            }
+            respond(exchange, 200, validations);
+        } else if ("GET".equals(method) && path.length <= 1) {
+            // ?productIds=a,b,c
+            List<Map<String, Object>> products = new ArrayList<>();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String param : query.split("&")) {
+                    String[] pair = param.split("=", 2);
+                    if (pair.length < 2 || !"productIds".equals(pair[0])) continue;
+                    for (String id : URLDecoder.decode(pair[1], StandardCharsets.UTF_8).split(",")) {
+                        products.add(product(UUID.fromString(id)));
+                    }
+                }
+            }
+            respond(exchange, 200, products);
+        } else if ("GET".equals(method) && path.length == 2) {
+            respond(exchange, 200, product(UUID.fromString(path[1])));
+        } else if ("GET".equals(method) && path.length == 3 && "stock".equals(path[2])) {
+            respond(exchange, 200, Map.of("productId", path[1], "sufficient", true, "stockQuantity", 500));
+        } else if ("POST".equals(method) && path.length == 4 && "stock".equals(path[2])) {
+            // /{id}/stock/reserve, /{id}/stock/release
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, Map.of("productId", path[1], "success", true));
+        } else {
+            respond(exchange, 404, Map.of("error", "No stub for " + method + " " + exchange.getRequestURI()));
+        }
+    }
+
+    private void handleOrders(HttpExchange exchange) throws IOException {
+        delay(orderLatencyMillis);
+
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 404, Map.of("error", "No stub for " + exchange.getRequestMethod() + " " + exchange.getRequestURI()));
+            return;
+        }
+        Map<String, Object> orderRequest = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("id", UUID.randomUUID().toString());
+        order.put("status", "PENDING");
+        order.put("cartId", orderRequest.get("cartId"));
+        respond(exchange, 201, order);
+    }
+
+    private Map<String, Object> product(UUID productId) {
+        Map<String, Object> product = new LinkedHashMap<>();
+        product.put("id", productId.toString());
+        product.put("name", "Bakery product " + productId.toString().substring(0, 8));
+        product.put("sku", "SKU-" + productId.toString().substring(0, 8).toUpperCase());
+        product.put("description", "Stub product for load tests");
+        product.put("effectivePrice", price(productId));
+        product.put("category", Map.of("name", "Bread"));
+        product.put("primaryImageUrl", "https://images.example.com/" + productId + ".jpg");
+        product.put("preparationTimeMinutes", 20);
+        return product;
+    }
+
+    // Stable per product: re-validation at checkout sees the price the item was added with
+    private BigDecimal price(UUID productId) {
+        return new BigDecimal("2.00").add(new BigDecimal("0.25").multiply(BigDecimal.valueOf(Math.floorMod(productId.hashCode(), 20))));
+    }
+
+    private void delay(long baseMillis) {
+        long millis = baseMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.shah_s.bakery_cart_service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Starts the extracted boot jar (build/cds) in a fresh JVM, with the prod profile against Postgres and
+// Redis containers, and reports per variant:
+// - the startup time logged by Spring Boot ("Started ... in X seconds")
+// - the time from launching the JVM to the first completed cart request (POST /api/carts)
+// Variants: plain, AOT-processed initialization, and AOT with the CDS archive of the training run.
+// Run with: ./gradlew startupTest (builds the jar and the archive first)
+@Tag("startup")
+class StartupTimeTests {
+
+    private static final int RUNS = 3;
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(120);
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in ([0-9.]+) seconds");
+
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+    private static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:latest"))
+            .withExposedPorts(6379);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final Path directory = Path.of(System.getProperty("startup.dir", "build/cds"));
+    private final String jar = System.getProperty("startup.jar", "bakery_cart_service-0.0.1-SNAPSHOT.jar");
+
+    @BeforeAll
+    static void startContainers() {
+        postgres.start();
+        redis.start();
+    }
+
+    @AfterAll
+    static void stopContainers() {
+        redis.stop();
+        postgres.stop();
+    }
+
+    @Test
+    void startupAndFirstRequest() throws Exception {
+        assertThat(directory.resolve(jar)).exists();
+        assertThat(directory.resolve("application.jsa")).exists();
+
+        // Unmeasured run: applies the Flyway migrations
+        start(List.of());
+
+        List<String> report = new ArrayList<>();
+        report.add(measure("plain", List.of()));
+        report.add(measure("aot", List.of("-Dspring.aot.enabled=true")));
+        report.add(measure("aot+cds", List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=application.jsa")));
+
+        System.out.printf("[%s] median of %d runs%n%-10s %12s %18s%n", getClass().getSimpleName(), RUNS,
+                "variant", "started (s)", "first request (s)");
+        report.forEach(System.out::println);
+    }
+
+    // Private helper methods
+    private String measure(String variant, List<String> jvmOptions) throws Exception {
+        double[] started = new double[RUNS];
+        double[] firstRequest = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            double[] run = start(jvmOptions);
+            started[i] = run[0];
+            firstRequest[i] = run[1];
+        }
+        return String.format("%-10s %12.2f %18.2f", variant, median(started), median(firstRequest));
+    }
+
+    // Returns {logged startup seconds, seconds from launch to the first completed cart request}
+    private double[] start(List<String> jvmOptions) throws Exception {
+        int port = freePort();
+        Path log = Files.createTempFile("cart-service-startup", ".log");
+
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", jar,
+                "--spring.profiles.active=prod",
+                "--server.port=" + port,
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.data.redis.host=" + redis.getHost(),
+                "--spring.data.redis.port=" + redis.getMappedPort(6379),
+                // Read at runtime: eureka.client.enabled is fixed by AOT processing for the aot variants
+                "--eureka.client.register-with-eureka=false",
+                "--eureka.client.fetch-registry=false",
+                "--cart.reservation.enabled=false"));
+
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = launched + START_TIMEOUT.toNanos();
+            while (!createCart(port)) {
+                assertThat(process.isAlive()).as("service exited, see %s", log).isTrue();
+                assertThat(System.nanoTime()).as("service did not start, see %s", log).isLessThan(deadline);
+                Thread.sleep(20);
+            }
+            double firstRequest = (System.nanoTime() - launched) / 1_000_000_000.0;
+
+            Matcher matcher = STARTED.matcher(Files.readString(log));
+            assertThat(matcher.find()).as("startup line in %s", log).isTrue();
+            return new double[]{Double.parseDouble(matcher.group(1)), firstRequest};
+        } finally {
+            process.destroy();
+            process.waitFor();
+            Files.deleteIfExists(log);
+        }
+    }
+
+    private boolean createCart(int port) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/carts"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .header("X-Session-Id", "startup-" + System.nanoTime())
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 201;
+        } catch (IOException e) {
+            return false; // Not listening yet
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}